@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Entry point of target/benchmarks.jar: runs JMH with the given options, adding JMH's GC profiler so every
+// benchmark reports its allocation rate (gc.alloc.rate) and bytes allocated per operation (gc.alloc.rate.norm)
+// next to its time. Any other JMH option can be passed as usual, e.g. "PuzzleBenchmark -p day=5,9" to only run
+// some days, or "-prof stack" to add another profiler.
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!hasGcProfiler(options)) {
+            options.add("-prof");
+            options.add("gc");
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+
+    private static boolean hasGcProfiler(List<String> options) {
+        for (int i = 0; i + 1 < options.size(); i++) {
+            if (options.get(i).equals("-prof") && options.get(i + 1).startsWith("gc"))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Benchmark comparing the String-based pairwise search of part 2 with the packed, tiled, parallel one, on generated
+// inputs of 10,000, 100,000 and 1,000,000 box IDs. The generated IDs contain one planted pair at random positions,
+// so each search stops at the row of its first ID. The String-based search is only run up to 100,000 IDs, as it
+// would take hours on the largest input. The larger searches take seconds to minutes, so each call is timed on its
+// own; select sizes with e.g. "-p size=10000".
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class Day2_Inventory_Management_System_Benchmark {
+    private static final MethodHandle PART2 = Solvers.method("Day2_Inventory_Management_System", "part2", List.class);
+    private static final MethodHandle PART2_PACKED = Solvers.method("Day2_Inventory_Management_System", "part2Packed", List.class);
+
+    private static final long SEED = 2018;
+
+    @State(Scope.Benchmark)
+    public static class PackedSearchInput {
+        @Param({ "10000", "100000", "1000000" })
+        int size;
+
+        List<String> boxes;
+
+        @Setup
+        public void setUp() throws Throwable {
+            boxes = generateBoxIds(size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class StringSearchInput {
+        @Param({ "10000", "100000" })
+        int size;
+
+        List<String> boxes;
+
+        @Setup
+        public void setUp() throws Throwable {
+            boxes = generateBoxIds(size);
+        }
+    }
+
+    @Benchmark
+    public Object strings(StringSearchInput input) throws Throwable {
+        return (Object) PART2.invokeExact((Object) input.boxes);
+    }
+
+    @Benchmark
+    public Object packed(PackedSearchInput input) throws Throwable {
+        return (Object) PART2_PACKED.invokeExact((Object) input.boxes);
+    }
+
+    private static List<String> generateBoxIds(int size) throws Throwable {
+        File file = File.createTempFile("day2-", ".txt");
+        try {
+            Solvers.generate(2, size, SEED, file);
+            return Files.readAllLines(file.toPath());
+        } finally {
+            file.delete();
+        }
+    }
+}
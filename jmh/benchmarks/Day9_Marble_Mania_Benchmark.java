@@ -0,0 +1,36 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+// Benchmark comparing the linked-list MarbleCircleGame used by part 2 with the chunked MarbleRope.
+// The linked list does O(1) work per marble but every step follows a pointer to a Marble object that can sit
+// anywhere on the heap. The rope does O(sqrt n) work per marble but all of it is sequential copies within one
+// int[] block. The GC profiler shows the other side of this: the linked list allocates a Marble per marble.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Day9_Marble_Mania_Benchmark {
+    private static final MethodHandle PART2 = Solvers.method("Day9_Marble_Mania", "part2", int.class, int.class);
+    private static final MethodHandle PART2_WITH_ROPE = Solvers.method("Day9_Marble_Mania", "part2WithRope", int.class, int.class);
+
+    private static final int NUM_PLAYERS = 405;
+
+    @Param({ "70953", "709530", "7095300" })
+    int lastMarble;
+
+    @Benchmark
+    public Object linkedList() throws Throwable {
+        return (Object) PART2.invokeExact((Object) NUM_PLAYERS, (Object) lastMarble);
+    }
+
+    @Benchmark
+    public Object rope() throws Throwable {
+        return (Object) PART2_WITH_ROPE.invokeExact((Object) NUM_PLAYERS, (Object) lastMarble);
+    }
+}
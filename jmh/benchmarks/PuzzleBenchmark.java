@@ -0,0 +1,46 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks the parse, part 1 and part 2 phases of each day separately on its checked-in input. Both parts are
+// measured on one parsed copy of the input, which is safe because solving never modifies the parsed input.
+// Select days with e.g. "-p day=5,9".
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleBenchmark {
+    @Param({ "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11" })
+    int day;
+
+    Object puzzle;
+    File file;
+    Object input;
+
+    @Setup
+    public void setUp() throws Throwable {
+        puzzle = Solvers.puzzle(day);
+        file = Solvers.inputFile(puzzle);
+        input = Solvers.parse(puzzle, file);
+    }
+
+    @Benchmark
+    public Object parse() throws Throwable {
+        return Solvers.parse(puzzle, file);
+    }
+
+    @Benchmark
+    public Object part1() throws Throwable {
+        return Solvers.solvePart1(puzzle, input);
+    }
+
+    @Benchmark
+    public Object part2() throws Throwable {
+        return Solvers.solvePart2(puzzle, input);
+    }
+}
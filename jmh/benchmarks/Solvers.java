@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+
+// Access to the solvers from the benchmarks. JMH only accepts benchmarks in a named package, and code in a named
+// package cannot refer to classes in the default package, where the solvers are. So the solvers are looked up by
+// name, and called through method handles taking and returning Object. The handles are kept in static final
+// fields, which the JIT treats as constants and inlines like direct calls.
+final class Solvers {
+    private static final MethodHandle PUZZLE = method("PuzzleRunner", "puzzle", int.class);
+    private static final MethodHandle PARSE = method("Puzzle", "parse", File.class);
+    private static final MethodHandle SOLVE_PART1 = method("Puzzle", "solvePart1", Object.class);
+    private static final MethodHandle SOLVE_PART2 = method("Puzzle", "solvePart2", Object.class);
+    private static final MethodHandle INPUT_PATH = method("Puzzle", "inputPath");
+    private static final MethodHandle GENERATE = method("InputGenerator", "generate", int.class, int.class, long.class, File.class);
+
+    private Solvers() {
+    }
+
+    // Returns the registered Puzzle for the given day.
+    static Object puzzle(int day) throws Throwable {
+        return (Object) PUZZLE.invokeExact((Object) day);
+    }
+
+    // Returns the puzzle's checked-in input file, or null when it has none.
+    static File inputFile(Object puzzle) throws Throwable {
+        String path = (String) (Object) INPUT_PATH.invokeExact(puzzle);
+        return path != null ? new File(path) : null;
+    }
+
+    static Object parse(Object puzzle, File file) throws Throwable {
+        return (Object) PARSE.invokeExact(puzzle, (Object) file);
+    }
+
+    static Object solvePart1(Object puzzle, Object input) throws Throwable {
+        return (Object) SOLVE_PART1.invokeExact(puzzle, input);
+    }
+
+    static Object solvePart2(Object puzzle, Object input) throws Throwable {
+        return (Object) SOLVE_PART2.invokeExact(puzzle, input);
+    }
+
+    // Writes a synthetic input for the day with InputGenerator.
+    static void generate(int day, int size, long seed, File file) throws Throwable {
+        Object unused = (Object) GENERATE.invokeExact((Object) day, (Object) size, (Object) seed, (Object) file);
+    }
+
+    // Returns a handle to the named method of the named class, whatever its visibility, with every parameter and
+    // the return value adapted to Object. Instance methods take the instance as their first parameter.
+    static MethodHandle method(String className, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = Class.forName(className).getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            return handle.asType(handle.type().generic());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot find " + className + "." + name, e);
+        }
+    }
+}
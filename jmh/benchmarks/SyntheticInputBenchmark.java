@@ -0,0 +1,72 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks the parse, part 1 and part 2 phases of each day on an input from InputGenerator that is scale times
+// the size of the checked-in one, to show how the solvers behave at sizes the real inputs never reach. The input is
+// generated with a fixed seed, so every run measures the same input. Day 7 is left out, as its steps are single
+// letters and the checked-in input already has all 26, and day 11 has no input. Select days and scales with e.g.
+// "-p day=2,5 -p scale=10,100".
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyntheticInputBenchmark {
+    private static final long SEED = 2018;
+
+    // Size of each day's checked-in input, in the units InputGenerator takes for that day.
+    private static final Map<Integer, Integer> CHECKED_IN_SIZES = Map.of(
+            1, 1000,
+            2, 250,
+            3, 1250,
+            4, 250,
+            5, 50_000,
+            6, 50,
+            8, 2000,
+            9, 70_953,
+            10, 300);
+
+    @Param({ "1", "2", "3", "4", "5", "6", "8", "9", "10" })
+    int day;
+
+    @Param({ "10" })
+    int scale;
+
+    Object puzzle;
+    File file;
+    Object input;
+
+    @Setup
+    public void setUp() throws Throwable {
+        puzzle = Solvers.puzzle(day);
+        file = File.createTempFile("day" + day + "-", ".txt");
+        Solvers.generate(day, CHECKED_IN_SIZES.get(day) * scale, SEED, file);
+        input = Solvers.parse(puzzle, file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public Object parse() throws Throwable {
+        return Solvers.parse(puzzle, file);
+    }
+
+    @Benchmark
+    public Object part1() throws Throwable {
+        return Solvers.solvePart1(puzzle, input);
+    }
+
+    @Benchmark
+    public Object part2() throws Throwable {
+        return Solvers.solvePart2(puzzle, input);
+    }
+}
@@ -1,137 +1,118 @@
-import java.io.File;
-import java.io.IOException;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
-public class Day10_Stars_Align {
+public class Day10_Stars_Align implements Puzzle<Day10_Stars_Align.Lights> {
     public static void main(String[] args) {
-        File file = new File("./inputs/day10/day10.txt");
-
-        try {
-            Scanner sc = new Scanner(file);
-
-            List<Light> lights = new ArrayList<>();
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String processedLine = line.replaceAll("\\s","");
+        Day10_Stars_Align puzzle = new Day10_Stars_Align();
+
+        // Simulate mode: step the lights one second at a time until the range of y-values starts growing, as the
+        // original solution did, and check that it stops at the same second as findConvergenceTime.
+        // Usage: simulate
+        if (args.length > 0 && args[0].equals("simulate")) {
+            try {
+                runSimulation(puzzle.parse(new File(puzzle.inputPath())));
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+            return;
+        }
 
-                int startBracket1 = processedLine.indexOf('<');
-                int endBracket1 = processedLine.indexOf('>');
-                String position = processedLine.substring(startBracket1 + 1, endBracket1);
-                String[] positionTokens = position.split(",");
+        PuzzleRunner.run(puzzle);
 
-                int startBracket2 = processedLine.indexOf('<', startBracket1 + 1);
-                int endBracket2 = processedLine.indexOf('>', endBracket1 + 1);
-                String velocity = processedLine.substring(startBracket2 + 1, endBracket2);
-                String[] velocityTokens = velocity.split(",");
+        // If an output file is given, also save the message as an image: PNG for a .png file, PBM otherwise.
+        if (args.length > 0) {
+            try {
+                Lights lights = puzzle.parse(new File(puzzle.inputPath()));
+                lights.stepTo(findConvergenceTime(lights));
 
-                Position p = new Position(Integer.parseInt(positionTokens[0]), Integer.parseInt(positionTokens[1]));
-                Velocity v = new Velocity(Integer.parseInt(velocityTokens[0]), Integer.parseInt(velocityTokens[1]));
+                File imageFile = new File(args[0]);
+                LightsBitmap bitmap = LightsBitmap.rasterize(lights);
+                if (imageFile.getName().toLowerCase().endsWith(".png")) {
+                    bitmap.writePng(imageFile);
+                } else {
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(imageFile))) {
+                        bitmap.writePbm(out);
+                    }
+                }
 
-                lights.add(new Light(p, v));
+            } catch (IOException exception) {
+                exception.printStackTrace();
             }
-
-            System.out.println("Part 1 is: ");
-            int seconds = part1and2(lights);
-            System.out.println("Part 2 is: " + seconds);
-
-        } catch (IOException exception) {
-            exception.printStackTrace();
         }
     }
 
-    // Given a list of lights and a position (x,y), returns true if there exists a light
-    // that is in the given position. Returns false, otherwise.
-    private static boolean isLightInPosition(List<Light> lights, Position p) {
-        for (Light light : lights) {
-            if (light.position.equals(p))
-                return true;
-        }
-        return false;
+    public String inputPath() {
+        return "./inputs/day10/day10.txt";
     }
 
-    // Given a list of lights, prints all the positions of the lights to the console in a visual grid.
-    // A cell with a light is denoted with a '#'. Otherwise, a cell without a light is denoted with a space.
-    private static void printLights(List<Light> lights) {
-        int minX = Integer.MAX_VALUE;
-        int minY = Integer.MAX_VALUE;
-        int maxX = Integer.MIN_VALUE;
-        int maxY = Integer.MIN_VALUE;
-
-        // Determine the bounding box of the lights.
-        for (Light light : lights) {
-            minX = Math.min(light.position.x, minX);
-            maxX = Math.max(light.position.x, maxX);
-            minY = Math.min(light.position.y, minY);
-            maxY = Math.max(light.position.y, maxY);
-        }
-
-        // Iterate through the cells of the bounding box, printing a '#' if that cell is occupied by a light
-        // and printing a space if that cell is not occupied.
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-                if (isLightInPosition(lights, new Position(x,y))) {
-                    System.out.print("#");
-                } else {
-                    System.out.print(" ");
-                }
+    // Reads one "position=< x, y> velocity=< vx, vy>" light per line.
+    public Lights parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
+            Lights lights = new Lights(16);
+            while (reader.nextLine()) {
+                lights.add(reader.nextInt(), reader.nextInt(), reader.nextInt(), reader.nextInt());
             }
-            System.out.println();
-        }
-    }
 
-    // Given a list of lights, adds each light's velocity to its position.
-    private static void step(List<Light> lights) {
-        for (Light light : lights) {
-            light.position.x = light.position.x + light.velocity.x;
-            light.position.y = light.position.y + light.velocity.y;
+            return lights;
         }
     }
 
-    // Given a list of lights, subtracts each light's velocity from its position.
-    private static void reverseStep(List<Light> lights) {
-        for (Light light : lights) {
-            light.position.x = light.position.x - light.velocity.x;
-            light.position.y = light.position.y - light.velocity.y;
-        }
-    }
+    // Part 1 is the message itself: the grid of lights, starting on the line after the answer, followed by the
+    // text it reads if every letter can be recognized. The lights are moved on a copy, so the input is untouched.
+    public Object solvePart1(Lights lights) {
+        Lights converged = lights.copy();
+        converged.stepTo(findConvergenceTime(converged));
 
-    // Returns the range of y positions in the given list of lights.
-    private static int rowSpread(List<Light> lights) {
-        List<Integer> yPositions = new ArrayList<>();
+        LightsBitmap bitmap = LightsBitmap.rasterize(converged);
+        String text = bitmap.toText();
+        StringBuilder sb = new StringBuilder(System.lineSeparator());
+        sb.append(text, 0, text.length() - System.lineSeparator().length());
 
-        for (Light light : lights) {
-            yPositions.add(light.position.y);
-        }
+        String message = GlyphRecognizer.recognize(bitmap);
+        if (message.indexOf(GlyphRecognizer.UNKNOWN_GLYPH) == -1)
+            sb.append(System.lineSeparator()).append("Message reads: ").append(message);
 
-        int minY = Integer.MAX_VALUE;
-        int maxY = Integer.MIN_VALUE;
-        for (Integer i : yPositions) {
-            minY = Math.min(minY, i);
-            maxY = Math.max(maxY, i);
-        }
+        return sb.toString();
+    }
 
-        return maxY - minY;
+    public Object solvePart2(Lights lights) {
+        return findConvergenceTime(lights);
     }
 
-    // Part 1 and 2: We find the message in the night sky by applying the respective velocity vectors
+    // Runs the simulation on a copy of the lights, prints the grid it stops at and the number of seconds it took,
+    // and reports whether that agrees with the convergence time found by the solver.
+    private static void runSimulation(Lights input) {
+        Lights lights = input.copy();
+        int seconds = simulateConvergence(lights);
+        int solverSeconds = findConvergenceTime(input);
+
+        LightsBitmap bitmap = LightsBitmap.rasterize(lights);
+        System.out.print(bitmap.toText());
+        System.out.println("Simulated convergence after " + seconds + " seconds, solver found " + solverSeconds
+                + (seconds == solverSeconds ? " (match)" : " (MISMATCH)"));
+    }
+
+    // Reference solution: We find the message in the night sky by applying the respective velocity vectors
     // of the lights to their positions. We simulate each step of this in a while loop.
     // In order to determine when to step, we make an observation/assumption about the nature of the "bounding box"
     // (the box formed by the min/max x and y values) of the lights. We observe that in order for the message
     // to be properly formed, the spread/range of y-values needs to be at a minimum. Therefore, we assume
     // that in the beginning, the range of y values will be ever decreasing until the message is formed, after which
     // the range will begin increasing again. Therefore, we iterate until we find a minimum range of y-values.
-    private static int part1and2(List<Light> lights) {
+    // Leaves the lights at the message and returns the number of seconds that passed.
+    private static int simulateConvergence(Lights lights) {
         int previousRowSpread = Integer.MAX_VALUE;
-        int seconds = 0; // Keep track of the number of seconds that have passed. Used in part 2.
+        int seconds = 0;
 
         // Keep iterating until we determine that our range of y-values is now increasing.
         while (true) {
-            step(lights);
-
-            // Check if the range of values is now increasing.
-            int rowSpread = rowSpread(lights);
+            // Step returns the new range of y-values, so we can check if it is now increasing.
+            int rowSpread = lights.step();
             if (rowSpread > previousRowSpread) {
-                reverseStep(lights); // If so, we've stepped one second too far, so reverse the lights once.
+                lights.reverseStep(); // If so, we've stepped one second too far, so reverse the lights once.
                 break;
             }
 
@@ -139,60 +120,368 @@ public class Day10_Stars_Align {
             seconds++;
         }
 
-        printLights(lights);
         return seconds;
     }
 
+    // Returns the range of y positions the given lights would have at time t, without moving them.
+    // Positions are computed as longs since y + vy * t can overflow an int for large t.
+    private static long rowSpreadAt(Lights lights, long t) {
+        int[] py = lights.py;
+        int[] vy = lights.vy;
+        long minY = Long.MAX_VALUE;
+        long maxY = Long.MIN_VALUE;
+        for (int i = 0; i < lights.size; i++) {
+            long y = py[i] + vy[i] * t;
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
 
-    // Class representing a point of light in the night sky. Each light has a position and a velocity.
-    static class Light {
-        Position position;
-        Velocity velocity;
+        return maxY - minY;
+    }
 
-        public Light(Position position, Velocity velocity) {
-            this.position = position;
-            this.velocity = velocity;
+    // Estimates the second at which the lights converge from the two lights with the most opposite velocities:
+    // the one moving down the fastest and the one moving up the fastest. The gap between them closes at the
+    // difference of their velocities, so they pass each other after (gap / closing speed) seconds.
+    private static long estimateConvergenceTime(Lights lights) {
+        int fastestDown = 0;
+        int fastestUp = 0;
+        for (int i = 0; i < lights.size; i++) {
+            if (lights.vy[i] > lights.vy[fastestDown])
+                fastestDown = i;
+            if (lights.vy[i] < lights.vy[fastestUp])
+                fastestUp = i;
         }
+
+        long closingSpeed = (long) lights.vy[fastestDown] - lights.vy[fastestUp];
+        if (closingSpeed == 0)
+            throw new IllegalArgumentException("The lights never converge: they all move with the same y velocity.");
+
+        long gap = (long) lights.py[fastestUp] - lights.py[fastestDown];
+        return Math.max(1, gap / closingSpeed);
+    }
+
+    // Returns the same second as simulateConvergence: the first second t >= 1 after which the range of
+    // y-values grows, i.e. rowSpread(t+1) > rowSpread(t). The range of y-values is the max of a set of linear
+    // functions of t minus the min of another, so it is convex and piecewise linear in t. That makes
+    // "rowSpread(t+1) > rowSpread(t)" false up to some second and true from then on, so we can binary search for it.
+    // The upper end of the search starts at the estimate and is doubled until the range is known to be growing.
+    private static int findConvergenceTime(Lights lights) {
+        long high = estimateConvergenceTime(lights);
+        while (rowSpreadAt(lights, high + 1) <= rowSpreadAt(lights, high)) {
+            high *= 2;
+            if (high > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("The lights do not converge within " + Integer.MAX_VALUE + " seconds.");
+        }
+
+        long low = 1;
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            if (rowSpreadAt(lights, mid + 1) > rowSpreadAt(lights, mid))
+                high = mid;
+            else
+                low = mid + 1;
+        }
+
+        return (int) low;
     }
 
-    // Class representing the position of a point of light in the night sky.
-    static class Position {
-        int x;
-        int y;
+    // Class holding the points of light in the night sky as parallel arrays: light i is at (px[i], py[i])
+    // and moves by (vx[i], vy[i]) every second. Keeping each coordinate in its own int[] means stepping is a
+    // straight pass over four arrays that the JIT can vectorize, with no per-light objects to chase and nothing
+    // allocated per simulated second.
+    static class Lights {
+        int[] px;
+        int[] py;
+        int[] vx;
+        int[] vy;
+        int size;
+
+        public Lights(int capacity) {
+            px = new int[capacity];
+            py = new int[capacity];
+            vx = new int[capacity];
+            vy = new int[capacity];
+            size = 0;
+        }
+
+        // Adds a light with the given position and velocity, growing the arrays if they are full.
+        public void add(int x, int y, int velocityX, int velocityY) {
+            if (size == px.length) {
+                int newCapacity = Math.max(16, size * 2);
+                px = Arrays.copyOf(px, newCapacity);
+                py = Arrays.copyOf(py, newCapacity);
+                vx = Arrays.copyOf(vx, newCapacity);
+                vy = Arrays.copyOf(vy, newCapacity);
+            }
 
-        public Position(int x, int y) {
-            this.x = x;
-            this.y = y;
+            px[size] = x;
+            py[size] = y;
+            vx[size] = velocityX;
+            vy[size] = velocityY;
+            size++;
         }
 
-        public String toString() {
-            return "P(" + x + "," + y + ")";
+        // Adds each light's velocity to its position and returns the new range of y positions.
+        // The min and max are tracked in the same pass so the positions are only read once.
+        public int step() {
+            int minY = Integer.MAX_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                px[i] += vx[i];
+                int y = py[i] + vy[i];
+                py[i] = y;
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+
+            return maxY - minY;
         }
 
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || o.getClass() != this.getClass()) return false;
-            Position p = (Position)o;
-            return (x == p.x && y == p.y);
+        // Returns a copy of these lights that can be moved independently.
+        public Lights copy() {
+            Lights copy = new Lights(0);
+            copy.px = Arrays.copyOf(px, size);
+            copy.py = Arrays.copyOf(py, size);
+            copy.vx = Arrays.copyOf(vx, size);
+            copy.vy = Arrays.copyOf(vy, size);
+            copy.size = size;
+            return copy;
         }
 
-        public int hashCode() {
-            return Objects.hash(x,y);
+        // Subtracts each light's velocity from its position.
+        public void reverseStep() {
+            for (int i = 0; i < size; i++) {
+                px[i] -= vx[i];
+                py[i] -= vy[i];
+            }
+        }
+
+        // Moves each light to where it will be after the given number of seconds. The positions are computed as
+        // longs, since velocity * seconds can overflow an int, and all of them are checked to fit in an int before
+        // any light is moved, so the lights are left untouched if they would not.
+        public void stepTo(int seconds) {
+            for (int i = 0; i < size; i++) {
+                long x = px[i] + (long) vx[i] * seconds;
+                long y = py[i] + (long) vy[i] * seconds;
+                if (x != (int) x || y != (int) y)
+                    throw new IllegalArgumentException("Light " + i + " is out of range after " + seconds + " seconds: ("
+                            + x + ", " + y + ")");
+            }
+
+            for (int i = 0; i < size; i++) {
+                px[i] = (int) (px[i] + (long) vx[i] * seconds);
+                py[i] = (int) (py[i] + (long) vy[i] * seconds);
+            }
         }
     }
 
-    // Class representing the veloctiy of a point of light in the night sky.
-    static class Velocity {
-        int x;
-        int y;
+    // Class representing the lights as a 1-bit image over their bounding box. Each row is packed into
+    // rowWords longs, with bit (x % 64) of word (x / 64) set if there is a light at column x of that row.
+    static class LightsBitmap {
+        // The longest text toText returns. Arrays, and so Strings, cannot quite reach Integer.MAX_VALUE elements.
+        static final int MAX_TEXT_LENGTH = Integer.MAX_VALUE - 8;
+
+        int minX;
+        int minY;
+        int width;
+        int height;
+        int rowWords;
+        long[] bits;
+
+        public LightsBitmap(int minX, int minY, int width, int height) {
+            this.minX = minX;
+            this.minY = minY;
+            this.width = width;
+            this.height = height;
+            this.rowWords = (width + 63) / 64;
+            this.bits = new long[rowWords * height];
+        }
+
+        // Returns a bitmap of the bounding box of the lights with a bit set for every light.
+        // Takes one pass to find the bounding box and one pass to set the bits.
+        public static LightsBitmap rasterize(Lights lights) {
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            for (int i = 0; i < lights.size; i++) {
+                minX = Math.min(lights.px[i], minX);
+                maxX = Math.max(lights.px[i], maxX);
+                minY = Math.min(lights.py[i], minY);
+                maxY = Math.max(lights.py[i], maxY);
+            }
+
+            long width = (long) maxX - minX + 1;
+            long height = (long) maxY - minY + 1;
+            if (width * height > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("The lights are too spread out to render: " + width + "x" + height);
+
+            LightsBitmap bitmap = new LightsBitmap(minX, minY, (int) width, (int) height);
+            for (int i = 0; i < lights.size; i++) {
+                int x = lights.px[i] - minX;
+                int y = lights.py[i] - minY;
+                bitmap.bits[y * bitmap.rowWords + (x >>> 6)] |= 1L << x;
+            }
+
+            return bitmap;
+        }
+
+        // Returns true if the pixel at column x and row y (relative to the top-left of the bitmap) is set.
+        public boolean isSet(int x, int y) {
+            return (bits[y * rowWords + (x >>> 6)] & (1L << x)) != 0;
+        }
+
+        // Returns the bitmap as text: one line per row, with '#' for a light and a space otherwise. Throws
+        // IllegalArgumentException if the text, with its line separators, would not fit in a String.
+        public String toText() {
+            String newline = System.lineSeparator();
+            long length = ((long) width + newline.length()) * height;
+            if (length > MAX_TEXT_LENGTH)
+                throw new IllegalArgumentException("The lights are too spread out to render as text: " + width + "x" + height);
+
+            StringBuilder sb = new StringBuilder((int) length);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    sb.append(isSet(x, y) ? '#' : ' ');
+                }
+                sb.append(newline);
+            }
+
+            return sb.toString();
+        }
+
+        // Writes the bitmap as a binary PBM (P4) image. Each row is packed into bytes, most significant bit first,
+        // with a set bit meaning a black pixel, which is the light.
+        public void writePbm(OutputStream out) throws IOException {
+            out.write(("P4\n" + width + " " + height + "\n").getBytes(StandardCharsets.US_ASCII));
+
+            byte[] row = new byte[(width + 7) / 8];
+            for (int y = 0; y < height; y++) {
+                Arrays.fill(row, (byte) 0);
+                for (int x = 0; x < width; x++) {
+                    if (isSet(x, y))
+                        row[x >>> 3] |= (byte) (0x80 >>> (x & 7));
+                }
+                out.write(row);
+            }
+        }
+
+        // Writes the bitmap as a black-and-white PNG image, with the lights in black.
+        public void writePng(File file) throws IOException {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    image.setRGB(x, y, isSet(x, y) ? 0x000000 : 0xFFFFFF);
+                }
+            }
 
-        public Velocity(int x, int y) {
-            this.x = x;
-            this.y = y;
+            ImageIO.write(image, "png", file);
         }
+    }
+
+    // Class that reads the message in a LightsBitmap as text. Each column of the bitmap is packed into a char, with
+    // bit y set if the pixel in row y is lit, and the letters are the runs of non-empty columns between empty ones.
+    // So letters can be any width and any distance apart, as long as there is an empty column between them and none
+    // inside them. Each letter's columns form a key that is looked up in a table of known letters; letters that are
+    // not in the table are read as UNKNOWN_GLYPH. The table holds the 6x10 font the puzzle inputs are written in.
+    static class GlyphRecognizer {
+        static final char UNKNOWN_GLYPH = '?';
+        static final int GLYPH_WIDTH = 6;
+        static final int GLYPH_HEIGHT = 10;
+        // The number of empty columns between letters in the puzzle inputs. Only used to lay out generated messages;
+        // the recognizer finds the letters from the empty columns themselves.
+        static final int GLYPH_SPACING = 2;
+
+        private static final Map<String, Character> GLYPHS = new HashMap<>();
+        private static final Map<Character, String[]> GLYPH_ROWS = new TreeMap<>();
+
+        static {
+            addGlyph('A', "  ##  ", " #  # ", "#    #", "#    #", "#    #", "######", "#    #", "#    #", "#    #", "#    #");
+            addGlyph('B', "##### ", "#    #", "#    #", "#    #", "##### ", "#    #", "#    #", "#    #", "#    #", "##### ");
+            addGlyph('C', " #### ", "#    #", "#     ", "#     ", "#     ", "#     ", "#     ", "#     ", "#    #", " #### ");
+            addGlyph('E', "######", "#     ", "#     ", "#     ", "##### ", "#     ", "#     ", "#     ", "#     ", "######");
+            addGlyph('F', "######", "#     ", "#     ", "#     ", "##### ", "#     ", "#     ", "#     ", "#     ", "#     ");
+            addGlyph('G', " #### ", "#    #", "#     ", "#     ", "#     ", "#  ###", "#    #", "#    #", "#   ##", " ### #");
+            addGlyph('H', "#    #", "#    #", "#    #", "#    #", "######", "#    #", "#    #", "#    #", "#    #", "#    #");
+            addGlyph('J', "   ###", "    # ", "    # ", "    # ", "    # ", "    # ", "    # ", "#   # ", "#   # ", " ###  ");
+            addGlyph('K', "#    #", "#   # ", "#  #  ", "# #   ", "##    ", "##    ", "# #   ", "#  #  ", "#   # ", "#    #");
+            addGlyph('L', "#     ", "#     ", "#     ", "#     ", "#     ", "#     ", "#     ", "#     ", "#     ", "######");
+            addGlyph('N', "#    #", "##   #", "##   #", "# #  #", "# #  #", "#  # #", "#  # #", "#   ##", "#   ##", "#    #");
+            addGlyph('P', "##### ", "#    #", "#    #", "#    #", "##### ", "#     ", "#     ", "#     ", "#     ", "#     ");
+            addGlyph('R', "##### ", "#    #", "#    #", "#    #", "##### ", "#  #  ", "#   # ", "#   # ", "#    #", "#    #");
+            addGlyph('X', "#    #", "#    #", " #  # ", " #  # ", "  ##  ", "  ##  ", " #  # ", " #  # ", "#    #", "#    #");
+            addGlyph('Z', "######", "     #", "     #", "    # ", "   #  ", "  #   ", " #    ", "#     ", "#     ", "######");
+        }
+
+        // Adds a letter to the table from its rows, using '#' for a set pixel. The rows may be of any width, but the
+        // letter must not have an empty column between its first and last set ones, or it would be read as two.
+        private static void addGlyph(char letter, String... rows) {
+            int width = rows[0].length();
+            char[] columns = new char[width];
+            for (int y = 0; y < rows.length; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (rows[y].charAt(x) == '#')
+                        columns[x] |= (char) (1 << y);
+                }
+            }
+
+            int left = 0;
+            int right = width;
+            while (left < right && columns[left] == 0)
+                left++;
+            while (right > left && columns[right - 1] == 0)
+                right--;
+            for (int x = left; x < right; x++) {
+                if (columns[x] == 0)
+                    throw new IllegalArgumentException("The glyph for letter " + letter + " has an empty column");
+            }
+
+            GLYPHS.put(new String(columns, left, right - left), letter);
+            GLYPH_ROWS.put(letter, rows);
+        }
+
+        // Returns the letters that can be recognized, in alphabetical order.
+        static Set<Character> letters() {
+            return Collections.unmodifiableSet(GLYPH_ROWS.keySet());
+        }
+
+        // Returns whether the pixel at (x, y) of the given letter is set.
+        static boolean isSet(char letter, int x, int y) {
+            String[] rows = GLYPH_ROWS.get(letter);
+            if (rows == null)
+                throw new IllegalArgumentException("No glyph for letter " + letter);
+            return rows[y].charAt(x) == '#';
+        }
+
+        // Returns the message in the bitmap, one character per letter. If the bitmap is not the height of a
+        // letter, no letters can be read and a single UNKNOWN_GLYPH is returned.
+        public static String recognize(LightsBitmap bitmap) {
+            if (bitmap.height != GLYPH_HEIGHT)
+                return String.valueOf(UNKNOWN_GLYPH);
+
+            char[] columns = new char[bitmap.width];
+            for (int y = 0; y < bitmap.height; y++) {
+                for (int x = 0; x < bitmap.width; x++) {
+                    if (bitmap.isSet(x, y))
+                        columns[x] |= (char) (1 << y);
+                }
+            }
+
+            StringBuilder sb = new StringBuilder();
+            int x = 0;
+            while (x < columns.length) {
+                if (columns[x] == 0) {
+                    x++;
+                    continue;
+                }
+
+                int left = x;
+                while (x < columns.length && columns[x] != 0)
+                    x++;
+                sb.append(GLYPHS.getOrDefault(new String(columns, left, x - left), UNKNOWN_GLYPH));
+            }
 
-        public String Velocity() {
-            return "V(" + x + "," + y + ")";
+            return sb.toString();
         }
     }
 }
@@ -1,17 +1,90 @@
 import java.awt.Point;
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
-public class Day11_Chronal_Charge {
+public class Day11_Chronal_Charge implements Puzzle<Integer> {
     private static final int GRID_SERIAL_NUMBER = 8141;
     private static final int GRID_WIDTH = 300;
     private static final int GRID_HEIGHT = 300;
 
+    // The highest power level a single fuel cell can have.
+    private static final int MAX_CELL_POWER_LEVEL = 4;
+
+    // In findMaxSquarePruned, the top-left corners of squares of size n are bounded in regions of n / 12 x n / 12.
+    private static final int REGION_SIZE_DIVISOR = 12;
+
     public static void main(String[] args) {
-        Point maxPoint = part1();
+        // Batch mode: evaluate every board with a serial number in [firstSerial, lastSerial].
+        // Usage: batch <firstSerial> <lastSerial> [<width> <height> <minSize> <maxSize>]
+        if (args.length > 0 && args[0].equals("batch")) {
+            runBatch(args);
+            return;
+        }
+
+        // Query mode: print the k best squares, or every square with a power level above a threshold.
+        // Usage: top <k>  or  above <threshold>
+        if (args.length > 1 && (args[0].equals("top") || args[0].equals("above"))) {
+            runQuery(args[0], Integer.parseInt(args[1]));
+            return;
+        }
+
+        if (args.length == 0) {
+            PuzzleRunner.run(new Day11_Chronal_Charge());
+            return;
+        }
+
+        Point maxPoint = part1(GRID_SERIAL_NUMBER);
         System.out.println("Part 1 is: (" + maxPoint.x + "," + maxPoint.y + ")");
 
-        FuelCellSquare maxSquare = part2WithSummedAreaTable();
+        // The part 2 strategy can be picked by name (e.g. HALVING_LAYERS) to compare their time and memory.
+        Part2Strategy strategy = Part2Strategy.valueOf(args[0]);
+        FuelCellSquare maxSquare = part2(strategy);
         System.out.println("Part 2 is: (" + maxSquare.point.x + "," + maxSquare.point.y + "," + maxSquare.size + ")");
+
+        if (strategy == Part2Strategy.PRUNED_SUMMED_AREA_TABLE) {
+            PrunedSearchResult result = findMaxSquarePruned(GRID_SERIAL_NUMBER, GRID_WIDTH, GRID_HEIGHT, 1, Math.min(GRID_WIDTH, GRID_HEIGHT));
+            System.out.println("Pruned " + result.candidatesPruned + " of "
+                    + (result.candidatesPruned + result.candidatesExamined) + " candidate squares.");
+        }
+    }
+
+    // There is no input file: the puzzle input is the grid's serial number.
+    public String inputPath() {
+        return null;
+    }
+
+    public Integer parse(File file) {
+        return GRID_SERIAL_NUMBER;
+    }
+
+    public Object solvePart1(Integer serialNumber) {
+        Point maxPoint = part1(serialNumber);
+        return "(" + maxPoint.x + "," + maxPoint.y + ")";
+    }
+
+    public Object solvePart2(Integer serialNumber) {
+        FuelCellSquare maxSquare = findMaxSquare(serialNumber, GRID_WIDTH, GRID_HEIGHT, 1, Math.min(GRID_WIDTH, GRID_HEIGHT));
+        return "(" + maxSquare.point.x + "," + maxSquare.point.y + "," + maxSquare.size + ")";
+    }
+
+    // Returns the part 2 answer using the given strategy.
+    private static FuelCellSquare part2(Part2Strategy strategy) {
+        switch (strategy) {
+            case HALVING_LAYERS:
+                return part2();
+            case SUMMED_AREA_TABLE:
+                return part2WithSummedAreaTable();
+            case PARALLEL_SUMMED_AREA_TABLE:
+                return part2WithParallelSummedAreaTable();
+            case PRUNED_SUMMED_AREA_TABLE:
+                return findMaxSquarePruned(GRID_SERIAL_NUMBER, GRID_WIDTH, GRID_HEIGHT, 1, Math.min(GRID_WIDTH, GRID_HEIGHT)).square;
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
     }
 
     private static void print(int[][] grid) {
@@ -29,19 +102,24 @@ public class Day11_Chronal_Charge {
     // E.g. 345 => 3
     // E.g. 162202 => 2
     // E.g. 56 => 0
-    private static int hundredsDigit(int n) {
-        return (n / 100) % 10;
+    private static int hundredsDigit(long n) {
+        return (int) ((n / 100) % 10);
     }
 
     // Given the x and y coordinates of a fuel cell, calculate the power level of that cell.
     private static int calculateFuelCellPowerLevel(int x, int y) {
-        int rackId = x + 10;
-        int powerLevel = rackId * y;
-        powerLevel += GRID_SERIAL_NUMBER;
+        return calculateFuelCellPowerLevel(x, y, GRID_SERIAL_NUMBER);
+    }
+
+    // Given the x and y coordinates of a fuel cell and the serial number of its grid,
+    // calculate the power level of that cell. The intermediate product is computed as a long, as it grows like
+    // x * x * y and no longer fits in an int past grids of about 1300x1300.
+    static int calculateFuelCellPowerLevel(int x, int y, int serialNumber) {
+        long rackId = x + 10;
+        long powerLevel = rackId * y;
+        powerLevel += serialNumber;
         powerLevel *= rackId;
-        powerLevel = hundredsDigit(powerLevel);
-        powerLevel -= 5;
-        return powerLevel;
+        return hundredsDigit(powerLevel) - 5;
     }
 
     // Given the x and y coordinates of the top left corner of a 3x3 square of fuel cells,
@@ -56,13 +134,13 @@ public class Day11_Chronal_Charge {
     // with the largest total power. Iterates through each 3x3 square in our 300x300 grid and calculates
     // the sum of the power levels of the 9 cells within each 3x3 square. Stores all such sums in a list
     // and returns the point associated with the largest sum.
-    private static Point part1() {
+    private static Point part1(int serialNumber) {
         int[][] grid = new int[GRID_HEIGHT][GRID_WIDTH];
 
         // Populate each cell of a grid with its power level.
         for (int y = 0; y < GRID_HEIGHT; y++) {
             for (int x = 0; x < GRID_WIDTH; x++) {
-                grid[y][x] = calculateFuelCellPowerLevel(x,y);
+                grid[y][x] = calculateFuelCellPowerLevel(x, y, serialNumber);
             }
         }
 
@@ -85,90 +163,117 @@ public class Day11_Chronal_Charge {
         return maxSquare.point;
     }
 
-    private static int calculateRightBottomBorderSum(Point coordinate, int size, Map<Point,Integer> powerLevelsForSizeOne) {
+    // Given the top-left coordinate of a square, its size, and the layer of power levels for squares of size one,
+    // returns the sum of the power levels of the square's right and bottom border cells.
+    // Layers are flat arrays with a row stride of GRID_WIDTH, where coordinate (x,y) is at (y-1) * GRID_WIDTH + (x-1).
+    private static int calculateRightBottomBorderSum(int x0, int y0, int size, int[] powerLevelsForSizeOne) {
         int sum = 0;
 
         // Start by summing up the right border cells from top to bottom, including the bottom-right corner cell.
-        for (int y = coordinate.y; y <= coordinate.y+size-1; y++) {
-            sum += powerLevelsForSizeOne.get(new Point(coordinate.x+size-1, y));
+        int right = x0 + size - 2;
+        for (int y = y0; y <= y0 + size - 1; y++) {
+            sum += powerLevelsForSizeOne[(y - 1) * GRID_WIDTH + right];
         }
 
         // Next, sum up the bottom border cells from left to right, excluding the bottom-right corner cell.
-        for (int x = coordinate.x; x <= coordinate.x + size - 2; x++) {
-            sum += powerLevelsForSizeOne.get(new Point(x, coordinate.y+size-1));
+        int bottom = (y0 + size - 2) * GRID_WIDTH;
+        for (int x = x0; x <= x0 + size - 2; x++) {
+            sum += powerLevelsForSizeOne[bottom + x - 1];
         }
 
         return sum;
     }
 
-    // Part 2: For each square size (1..300), keep track of a HashMap mapping a point in the grid to its power level sum.
+    // Part 2: For each square size (1..300), keep track of a layer mapping a point in the grid to its power level sum.
     // By iterating through each square size from smallest to largest, we incrementally build up these partial sums.
     // If an even square size is needed, we can find the power level sum by adding up 4 half-sized squares.
     // If an odd square size is needed, we can find the power level sum by using the power level sum of the square size
-    // that is one less and the sum of the right and bottom border cell's power levels. Takes about 30 sec to run.
+    // that is one less and the sum of the right and bottom border cell's power levels.
+    // Each layer is a flat int[] rather than a HashMap keyed on Point. A layer is only kept until the last size that
+    // reads it: layer k is read by size 2k (even) and, if k is even, by size k+1 (odd). The layer of size one is
+    // also kept for the border sums. This is not a rolling window: while size s is computed, the layers from s/2 up
+    // that a larger size still reads are all alive. On the 300x300 grid that peaks at 77 of the 300 layers, about
+    // 28 MB of int[], where part2WithSummedAreaTable needs under 1 MB.
     private static FuelCellSquare part2() {
-        // Stores a HashMap for each square size. Each square size has a HashMap storing the top-left coordinate
-        // and its corresponding power level sum.
-        Map<Integer, Map<Point, Integer>> powerLevels = new HashMap<>();
+        int maxSize = Math.min(GRID_WIDTH, GRID_HEIGHT);
+
+        // Find the last size that reads each layer, so that it can be released afterwards.
+        int[] lastUse = new int[maxSize + 1];
+        for (int k = 1; k <= maxSize; k++) {
+            if (2 * k <= maxSize)
+                lastUse[k] = 2 * k;
+            if (k % 2 == 0 && k + 1 <= maxSize)
+                lastUse[k] = Math.max(lastUse[k], k + 1);
+        }
 
-        // For the initial size of 1, we need to populate our map.
-        Map<Point, Integer> powerLevelSizeOne = new HashMap<>();
+        int[][] powerLevels = new int[maxSize + 1][];
+
+        // For the initial size of 1, we need to populate our layer.
+        int[] powerLevelSizeOne = new int[GRID_WIDTH * GRID_HEIGHT];
         for (int y = 1; y <= GRID_HEIGHT; y++) {
             for (int x = 1; x <= GRID_WIDTH; x++) {
-                powerLevelSizeOne.put(new Point(x,y), calculateFuelCellPowerLevel(x,y));
+                powerLevelSizeOne[(y - 1) * GRID_WIDTH + (x - 1)] = calculateFuelCellPowerLevel(x,y);
             }
         }
-        powerLevels.put(1, powerLevelSizeOne);
+        powerLevels[1] = powerLevelSizeOne;
 
         // Keep track of the max power level seen so far.
-        FuelCellSquare maxFuelCellSquare = new FuelCellSquare(null, Integer.MIN_VALUE, 1);
+        int bestPowerLevel = Integer.MIN_VALUE;
+        int bestSize = 1;
+        int bestX = 0;
+        int bestY = 0;
 
         // Iterate through the rest of the square sizes.
         // If a square size is even, its sum can be calculated by adding up the power levels of squares of size / 2.
         // If a square size is odd, its sum can be calculated by adding up the power level of the square of size - 1
         // and the sums of the fuel cells of its right and bottom border.
-        for (int size = 2; size <= 300; size++) {
+        for (int size = 2; size <= maxSize; size++) {
             boolean isEvenSize = size % 2 == 0;
-
-            Map<Point, Integer> newSizeMap = new HashMap<>();
-            Map<Point, Integer> smallerSizeMap = isEvenSize
-                    ? powerLevels.get(size / 2)
-                    : powerLevels.get(size-1);
+            int smallerSize = isEvenSize ? size / 2 : size - 1;
+            int[] smallerSizeLayer = powerLevels[smallerSize];
+            int[] newSizeLayer = lastUse[size] > 0 ? new int[GRID_WIDTH * GRID_HEIGHT] : null;
+            int half = size / 2;
 
             for (int y = 1; y <= GRID_HEIGHT - size + 1; y++) {
                 for (int x = 1; x <= GRID_WIDTH - size + 1; x++) {
-                    Point coordinate = new Point(x, y);
+                    int index = (y - 1) * GRID_WIDTH + (x - 1);
 
                     int sum;
                     if (isEvenSize) {
                         // For square sizes that are even, the new sum will always
                         // be four sums of half-sized squares.
-                        sum = smallerSizeMap.get(new Point(x, y)) +
-                                smallerSizeMap.get(new Point(x + (size / 2), y)) +
-                                smallerSizeMap.get(new Point(x, y + (size / 2))) +
-                                smallerSizeMap.get(new Point(x + (size / 2), y + (size / 2)));
+                        sum = smallerSizeLayer[index] +
+                                smallerSizeLayer[index + half] +
+                                smallerSizeLayer[index + half * GRID_WIDTH] +
+                                smallerSizeLayer[index + half * GRID_WIDTH + half];
                     } else {
                         // For square sizes that are odd, the new sum is the power level of the square size that is
                         // one smaller and the sum of the right and bottom borders.
-                        int sumOfBorders = calculateRightBottomBorderSum(coordinate, size, powerLevels.get(1));
-                        sum = sumOfBorders + smallerSizeMap.get(coordinate);
+                        int sumOfBorders = calculateRightBottomBorderSum(x, y, size, powerLevelSizeOne);
+                        sum = sumOfBorders + smallerSizeLayer[index];
                     }
 
-                    newSizeMap.put(coordinate, sum);
+                    if (newSizeLayer != null)
+                        newSizeLayer[index] = sum;
 
                     // See if we've found a new max sum
-                    if (sum > maxFuelCellSquare.powerLevel) {
-                        maxFuelCellSquare.powerLevel = sum;
-                        maxFuelCellSquare.size = size;
-                        maxFuelCellSquare.point = coordinate;
+                    if (sum > bestPowerLevel) {
+                        bestPowerLevel = sum;
+                        bestSize = size;
+                        bestX = x;
+                        bestY = y;
                     }
                 }
             }
 
-            powerLevels.put(size, newSizeMap);
+            powerLevels[size] = newSizeLayer;
+
+            // Release the smaller layer if no larger size will read it again.
+            if (smallerSize != 1 && lastUse[smallerSize] == size)
+                powerLevels[smallerSize] = null;
         }
 
-        return maxFuelCellSquare;
+        return new FuelCellSquare(new Point(bestX, bestY), bestPowerLevel, bestSize);
     }
 
     // Given a grid G of values, return its summed-area table SAT. A summed-area table is a 2d array where
@@ -177,10 +282,12 @@ public class Day11_Chronal_Charge {
     // and the cell immediately to the left of it. More specifically:
     // SAT[i,j] = SAT[i-1,j] + SAT[i,j-1] + G[i,j] - SAT[i-1,j-1]
     private static int[][] calculateSummedAreaTable(int[][] grid) {
-        int[][] summedAreaTable = new int[GRID_HEIGHT][GRID_WIDTH];
+        int height = grid.length;
+        int width = grid[0].length;
+        int[][] summedAreaTable = new int[height][width];
 
-        for (int y = 0; y < GRID_HEIGHT; y++) {
-            for (int x = 0; x < GRID_WIDTH; x++) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
                 int topValue = y-1 >= 0 ? summedAreaTable[y-1][x] : 0;
                 int leftValue = x-1 >= 0 ? summedAreaTable[y][x-1] : 0;
                 int diagonalValue = x-1 >= 0 && y-1 >= 0 ? summedAreaTable[y-1][x-1] : 0;
@@ -194,12 +301,19 @@ public class Day11_Chronal_Charge {
     // This is an attempt to re-implement part 2 but using a summed-area table for further optimization.
     // Takes about 50ms to run.
     private static FuelCellSquare part2WithSummedAreaTable() {
-        int[][] grid = new int[GRID_HEIGHT][GRID_WIDTH];
+        return part2WithSummedAreaTable(GRID_SERIAL_NUMBER, GRID_WIDTH, GRID_HEIGHT, 1, Math.min(GRID_WIDTH, GRID_HEIGHT));
+    }
+
+    // The exhaustive scan of part2WithSummedAreaTable on a width x height grid with the given serial number, among
+    // the squares with a size in [minSize, maxSize]. It is the reference the faster searches are checked against.
+    static FuelCellSquare part2WithSummedAreaTable(int serialNumber, int width, int height, int minSize, int maxSize) {
+        validateGrid(width, height, minSize, maxSize);
+        int[][] grid = new int[height][width];
 
         // Populate each cell of a grid with its power level.
-        for (int y = 0; y < GRID_HEIGHT; y++) {
-            for (int x = 0; x < GRID_WIDTH; x++) {
-                grid[y][x] = calculateFuelCellPowerLevel(x,y);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = calculateFuelCellPowerLevel(x, y, serialNumber);
             }
         }
 
@@ -207,14 +321,14 @@ public class Day11_Chronal_Charge {
         // sum of all cells <= i and all cells <= j in the grid.
         int[][] sat = calculateSummedAreaTable(grid);
 
-        FuelCellSquare maxSquare = new FuelCellSquare(null, Integer.MIN_VALUE, 1);
+        FuelCellSquare maxSquare = new FuelCellSquare(null, Integer.MIN_VALUE, minSize);
 
         // Iterate through all square sizes. Iterate through each cell. Each cell is considered to be the top-left
         // corner of a square. The sum of that square is calculated by using the summed-area table (SAT).
         // The square sum is calculated: SAT[i,j] - SAT[i-1,j] - SAT[i,j-1] + SAT[i-1,j-1]
-        for (int size = 1; size <= 300; size++) {
-            for (int y = 0; y < GRID_HEIGHT - size + 1; y++) {
-                for (int x = 0; x < GRID_WIDTH - size + 1; x++) {
+        for (int size = minSize; size <= maxSize; size++) {
+            for (int y = 0; y < height - size + 1; y++) {
+                for (int x = 0; x < width - size + 1; x++) {
                     int topSum = y-1 >= 0 ? sat[y-1][x+size-1] : 0;
                     int leftSum = x-1 >= 0 ? sat[y+size-1][x-1] : 0;
                     int diagonalSum = x-1 >= 0 && y-1 >= 0 ? sat[y-1][x-1] : 0;
@@ -233,6 +347,491 @@ public class Day11_Chronal_Charge {
         return maxSquare;
     }
 
+    // Fills the given array with the summed-area table of the power levels of a width x height grid with the
+    // given serial number. The table is one flat array with an extra row of zeros at the top and an extra column of
+    // zeros at the left. It has a row stride of width + 1, and sat[(y+1) * (width+1) + (x+1)] is the sum of all
+    // cells (a,b) with 0 <= a <= x and 0 <= b <= y. Thanks to the padding, the top, left and diagonal values always
+    // exist, so no boundary checks are needed. The array may be larger than the table; only its start is used.
+    private static void fillPaddedSummedAreaTable(int[] sat, int serialNumber, int width, int height) {
+        int stride = width + 1;
+        Arrays.fill(sat, 0, stride, 0);
+
+        for (int y = 0; y < height; y++) {
+            int row = (y + 1) * stride;
+            sat[row] = 0;
+            for (int x = 0; x < width; x++) {
+                sat[row + x + 1] = sat[row - stride + x + 1] + sat[row + x] + calculateFuelCellPowerLevel(x, y, serialNumber)
+                        - sat[row - stride + x];
+            }
+        }
+    }
+
+    // Fills the given array with a padded summed-area table like fillPaddedSummedAreaTable, except that only the
+    // cells with a positive power level are summed. Its sums are an upper bound on the sums of the same rectangles.
+    private static void fillPaddedPositiveSummedAreaTable(int[] sat, int serialNumber, int width, int height) {
+        int stride = width + 1;
+        Arrays.fill(sat, 0, stride, 0);
+
+        for (int y = 0; y < height; y++) {
+            int row = (y + 1) * stride;
+            sat[row] = 0;
+            for (int x = 0; x < width; x++) {
+                int powerLevel = Math.max(0, calculateFuelCellPowerLevel(x, y, serialNumber));
+                sat[row + x + 1] = sat[row - stride + x + 1] + sat[row + x] + powerLevel - sat[row - stride + x];
+            }
+        }
+    }
+
+    // Returns the sum of the rectangle of cells [x0, x1) x [y0, y1), using a padded summed-area table
+    // with the given row stride.
+    private static int rectangleSum(int[] sat, int stride, int x0, int y0, int x1, int y1) {
+        return sat[y1 * stride + x1] - sat[y0 * stride + x1] - sat[y1 * stride + x0] + sat[y0 * stride + x0];
+    }
+
+    // Returns the number of ints needed for the padded summed-area table of a width x height grid.
+    private static int paddedSummedAreaTableSize(int width, int height) {
+        long size = (long) (width + 1) * (height + 1);
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+        return (int) size;
+    }
+
+    // Checks that the grid dimensions and the range of square sizes describe at least one square.
+    private static void validateGrid(int width, int height, int minSize, int maxSize) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("Invalid grid size: " + width + "x" + height);
+        if (minSize < 1 || minSize > maxSize || maxSize > Math.min(width, height))
+            throw new IllegalArgumentException("Invalid square sizes [" + minSize + ", " + maxSize + "] for a "
+                    + width + "x" + height + " grid");
+    }
+
+    // Part 2 (parallel): Same search as part2WithSummedAreaTable, but the summed-area table is one flat padded array
+    // and the (size, y) space is split across a fork-join pool. Each task keeps its own best square in local
+    // variables and the tasks' results are reduced at the end, preferring the square the sequential scan would
+    // have found first when two squares have the same power level.
+    private static FuelCellSquare part2WithParallelSummedAreaTable() {
+        return findMaxSquare(GRID_SERIAL_NUMBER, GRID_WIDTH, GRID_HEIGHT, 1, Math.min(GRID_WIDTH, GRID_HEIGHT));
+    }
+
+    // Returns the square with the largest total power on a width x height grid with the given serial number,
+    // among the squares with a size in [minSize, maxSize]. The search is split across the common fork-join pool.
+    static FuelCellSquare findMaxSquare(int serialNumber, int width, int height, int minSize, int maxSize) {
+        validateGrid(width, height, minSize, maxSize);
+
+        int[] sat = new int[paddedSummedAreaTableSize(width, height)];
+        fillPaddedSummedAreaTable(sat, serialNumber, width, height);
+        return ForkJoinPool.commonPool().invoke(new MaxSquareTask(sat, width, height, minSize, maxSize, 0, height));
+    }
+
+    // Returns the best square of each board, one board per serial number, in the same order as the serial numbers.
+    // All boards share the same dimensions and range of square sizes. Boards are evaluated concurrently on the
+    // common fork-join pool. Each run of boards handed to a worker gets its own BoardSearcher, which reuses one
+    // summed-area table buffer for all of them. The searchers belong to this call only, so their buffers can be
+    // collected once the batch is done instead of staying attached to the pool's threads.
+    static FuelCellSquare[] evaluateBoards(int[] serialNumbers, int width, int height, int minSize, int maxSize) {
+        validateGrid(width, height, minSize, maxSize);
+
+        FuelCellSquare[] results = new FuelCellSquare[serialNumbers.length];
+        IntStream.range(0, serialNumbers.length).parallel().collect(
+                BoardSearcher::new,
+                (searcher, i) -> results[i] = searcher.search(serialNumbers[i], width, height, minSize, maxSize),
+                (searcher, other) -> { });
+        return results;
+    }
+
+    // Runs batch mode from the command line arguments and prints each board's best square as
+    // "serial: x,y,size,power", one board per line.
+    private static void runBatch(String[] args) {
+        int firstSerial = Integer.parseInt(args[1]);
+        int lastSerial = Integer.parseInt(args[2]);
+        int width = args.length > 3 ? Integer.parseInt(args[3]) : GRID_WIDTH;
+        int height = args.length > 4 ? Integer.parseInt(args[4]) : GRID_HEIGHT;
+        int minSize = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        int maxSize = args.length > 6 ? Integer.parseInt(args[6]) : Math.min(width, height);
+
+        int[] serialNumbers = IntStream.rangeClosed(firstSerial, lastSerial).toArray();
+        FuelCellSquare[] results = evaluateBoards(serialNumbers, width, height, minSize, maxSize);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < serialNumbers.length; i++) {
+            FuelCellSquare square = results[i];
+            sb.append(serialNumbers[i]).append(": ")
+                    .append(square.point.x).append(',').append(square.point.y).append(',')
+                    .append(square.size).append(',').append(square.powerLevel).append('\n');
+        }
+        System.out.print(sb);
+    }
+
+    // Returns the same square as the exhaustive scan, but uses branch-and-bound to skip squares that cannot beat
+    // the best square found so far. A second summed-area table holds only the positive power levels, so for any
+    // rectangle it gives the most that rectangle can contribute to a square.
+    //
+    // Sizes are searched from smallest to largest. A whole size is skipped if even a square full of cells at the
+    // maximum power level of 4 could not beat the best square. Otherwise, the possible top-left corners are split
+    // into regions of regionSize x regionSize. Every square of the region lies within the union of its squares,
+    // and contains the core that all its squares share. So a square's sum is at most the exact sum of the core
+    // plus the positive part of the rest of the union. If that bound cannot beat the best square, the whole region
+    // is skipped. Regions are kept small relative to the size so that the core covers most of each square.
+    //
+    // Because regions are not visited in the exhaustive scan's order, a square with the same power level as the
+    // best one replaces it if it comes earlier in that order (smaller size, then y, then x), and a region that can
+    // at most tie the best square is only skipped if all its squares come later in that order.
+    static PrunedSearchResult findMaxSquarePruned(int serialNumber, int width, int height, int minSize, int maxSize) {
+        validateGrid(width, height, minSize, maxSize);
+
+        int stride = width + 1;
+        int[] sat = new int[paddedSummedAreaTableSize(width, height)];
+        int[] positiveSat = new int[sat.length];
+        fillPaddedSummedAreaTable(sat, serialNumber, width, height);
+        fillPaddedPositiveSummedAreaTable(positiveSat, serialNumber, width, height);
+
+        int bestPower = Integer.MIN_VALUE;
+        int bestSize = 0;
+        int bestX = 0;
+        int bestY = 0;
+        long candidatesPruned = 0;
+        long candidatesExamined = 0;
+
+        for (int size = minSize; size <= maxSize; size++) {
+            int rows = height - size + 1;
+            int columns = width - size + 1;
+
+            // Every later square has a larger size than the best one, so it has to be strictly better to win.
+            if ((long) MAX_CELL_POWER_LEVEL * size * size <= bestPower && bestSize < size) {
+                candidatesPruned += (long) rows * columns;
+                continue;
+            }
+
+            int regionSize = Math.max(1, size / REGION_SIZE_DIVISOR);
+            for (int regionY = 0; regionY < rows; regionY += regionSize) {
+                int regionEndY = Math.min(regionY + regionSize, rows);
+                for (int regionX = 0; regionX < columns; regionX += regionSize) {
+                    int regionEndX = Math.min(regionX + regionSize, columns);
+                    long regionCandidates = (long) (regionEndY - regionY) * (regionEndX - regionX);
+
+                    if (regionSize > 1) {
+                        // The union of the region's squares, and the core they all share: the last corner's square
+                        // starts at (regionEndX - 1, regionEndY - 1) and the first corner's square ends at
+                        // (regionX + size, regionY + size).
+                        int bound = rectangleSum(positiveSat, stride, regionX, regionY, regionEndX - 1 + size, regionEndY - 1 + size);
+                        int coreX0 = regionEndX - 1;
+                        int coreY0 = regionEndY - 1;
+                        int coreX1 = regionX + size;
+                        int coreY1 = regionY + size;
+                        if (coreX0 < coreX1 && coreY0 < coreY1) {
+                            bound += rectangleSum(sat, stride, coreX0, coreY0, coreX1, coreY1)
+                                    - rectangleSum(positiveSat, stride, coreX0, coreY0, coreX1, coreY1);
+                        }
+
+                        boolean canBeatBest = bound > bestPower
+                                || (bound == bestPower && comesBefore(size, regionY, regionX, bestSize, bestY, bestX));
+                        if (!canBeatBest) {
+                            candidatesPruned += regionCandidates;
+                            continue;
+                        }
+                    }
+
+                    candidatesExamined += regionCandidates;
+                    for (int y = regionY; y < regionEndY; y++) {
+                        for (int x = regionX; x < regionEndX; x++) {
+                            int squareSum = rectangleSum(sat, stride, x, y, x + size, y + size);
+                            if (squareSum > bestPower
+                                    || (squareSum == bestPower && comesBefore(size, y, x, bestSize, bestY, bestX))) {
+                                bestPower = squareSum;
+                                bestSize = size;
+                                bestX = x;
+                                bestY = y;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return new PrunedSearchResult(new FuelCellSquare(new Point(bestX, bestY), bestPower, bestSize),
+                candidatesPruned, candidatesExamined);
+    }
+
+    // Returns true if the square (size, y, x) comes before the square (otherSize, otherY, otherX)
+    // in the exhaustive scan order: smallest size, then smallest y, then smallest x.
+    private static boolean comesBefore(int size, int y, int x, int otherSize, int otherY, int otherX) {
+        if (size != otherSize) return size < otherSize;
+        if (y != otherY) return y < otherY;
+        return x < otherX;
+    }
+
+    // Returns the k squares with the largest power levels on a width x height grid with the given serial number,
+    // among the squares with a size in [minSize, maxSize], best first. Squares with the same power level are
+    // ordered as the sequential scan would find them. Sizes are spread across the common fork-join pool, and each
+    // worker keeps its k best squares in its own bounded heap, which are merged at the end. A square is only
+    // allocated once it makes it into a heap, so the ~9 million candidates of a 300x300 grid are never materialized.
+    static List<FuelCellSquare> findTopSquares(int serialNumber, int width, int height, int minSize, int maxSize, int k) {
+        validateGrid(width, height, minSize, maxSize);
+        if (k < 1)
+            throw new IllegalArgumentException("k must be positive: " + k);
+
+        int[] sat = new int[paddedSummedAreaTableSize(width, height)];
+        fillPaddedSummedAreaTable(sat, serialNumber, width, height);
+
+        TopSquares top = IntStream.rangeClosed(minSize, maxSize).parallel().collect(
+                () -> new TopSquares(k),
+                (heap, size) -> heap.addSquaresOfSize(sat, width, height, size),
+                TopSquares::merge);
+        return top.bestFirst();
+    }
+
+    // Passes every square with a power level above the threshold to the consumer, on a width x height grid with the
+    // given serial number, among the squares with a size in [minSize, maxSize]. Squares are streamed as they are
+    // found rather than collected, in no particular order. Sizes are spread across the common fork-join pool, so
+    // the consumer is called from several threads at once and must be thread-safe.
+    static void forEachSquareAbove(int serialNumber, int width, int height, int minSize, int maxSize,
+                                   int threshold, Consumer<FuelCellSquare> consumer) {
+        validateGrid(width, height, minSize, maxSize);
+
+        int[] sat = new int[paddedSummedAreaTableSize(width, height)];
+        fillPaddedSummedAreaTable(sat, serialNumber, width, height);
+
+        int stride = width + 1;
+        IntStream.rangeClosed(minSize, maxSize).parallel().forEach(size -> {
+            for (int y = 0; y < height - size + 1; y++) {
+                for (int x = 0; x < width - size + 1; x++) {
+                    int squareSum = rectangleSum(sat, stride, x, y, x + size, y + size);
+                    if (squareSum > threshold)
+                        consumer.accept(new FuelCellSquare(new Point(x, y), squareSum, size));
+                }
+            }
+        });
+    }
+
+    // Runs query mode on the puzzle's grid and prints the matching squares as "x,y,size,power", one per line.
+    private static void runQuery(String query, int value) {
+        int maxSize = Math.min(GRID_WIDTH, GRID_HEIGHT);
+        StringBuilder sb = new StringBuilder();
+
+        if (query.equals("top")) {
+            for (FuelCellSquare square : findTopSquares(GRID_SERIAL_NUMBER, GRID_WIDTH, GRID_HEIGHT, 1, maxSize, value)) {
+                sb.append(square).append('\n');
+            }
+        } else {
+            forEachSquareAbove(GRID_SERIAL_NUMBER, GRID_WIDTH, GRID_HEIGHT, 1, maxSize, value, square -> {
+                synchronized (sb) {
+                    sb.append(square).append('\n');
+                }
+            });
+        }
+
+        System.out.print(sb);
+    }
+
+    // Returns whichever of the two squares has the larger power level. On a tie, returns the one that comes first
+    // in the sequential scan order of part2WithSummedAreaTable: smallest size, then smallest y, then smallest x.
+    // A null square (from a task that had no squares to look at) always loses.
+    private static FuelCellSquare betterSquare(FuelCellSquare a, FuelCellSquare b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.powerLevel != b.powerLevel)
+            return a.powerLevel > b.powerLevel ? a : b;
+        if (a.size != b.size)
+            return a.size < b.size ? a : b;
+        if (a.point.y != b.point.y)
+            return a.point.y < b.point.y ? a : b;
+        return a.point.x <= b.point.x ? a : b;
+    }
+
+    // Fork-join task that finds the best square with a size in [minSize, maxSize] and a top-left y in
+    // [minY, maxY). A task covering several sizes is split into two halves by size. A task covering a single size
+    // is split by rows until it is small enough to scan directly.
+    static class MaxSquareTask extends RecursiveTask<FuelCellSquare> {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_CANDIDATES_PER_TASK = 1 << 15;
+
+        int[] sat;
+        int width;
+        int height;
+        int minSize;
+        int maxSize;
+        int minY;
+        int maxY;
+
+        public MaxSquareTask(int[] sat, int width, int height, int minSize, int maxSize, int minY, int maxY) {
+            this.sat = sat;
+            this.width = width;
+            this.height = height;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        @Override
+        protected FuelCellSquare compute() {
+            if (minSize < maxSize) {
+                int midSize = (minSize + maxSize) >>> 1;
+                MaxSquareTask smaller = new MaxSquareTask(sat, width, height, minSize, midSize, minY, maxY);
+                MaxSquareTask larger = new MaxSquareTask(sat, width, height, midSize + 1, maxSize, minY, maxY);
+                larger.fork();
+                FuelCellSquare best = smaller.compute();
+                return betterSquare(best, larger.join());
+            }
+
+            int size = minSize;
+            int rows = Math.min(maxY, height - size + 1) - minY;
+            int columns = width - size + 1;
+            if (rows <= 0 || columns <= 0)
+                return null;
+
+            if (rows > 1 && (long) rows * columns > MIN_CANDIDATES_PER_TASK) {
+                int midY = minY + rows / 2;
+                MaxSquareTask top = new MaxSquareTask(sat, width, height, size, size, minY, midY);
+                MaxSquareTask bottom = new MaxSquareTask(sat, width, height, size, size, midY, maxY);
+                bottom.fork();
+                FuelCellSquare best = top.compute();
+                return betterSquare(best, bottom.join());
+            }
+
+            return scanSquares(sat, width, size, minY, minY + rows);
+        }
+    }
+
+    // Scans the squares of the given size with a top-left y in [fromY, toY) of a grid of the given width, in the
+    // sequential scan order, keeping the best one seen so far in local variables. The rows must be valid for the
+    // size, i.e. toY <= height - size + 1.
+    private static FuelCellSquare scanSquares(int[] sat, int width, int size, int fromY, int toY) {
+        int stride = width + 1;
+        int columns = width - size + 1;
+        int bestPower = Integer.MIN_VALUE;
+        int bestX = 0;
+        int bestY = 0;
+
+        for (int y = fromY; y < toY; y++) {
+            int top = y * stride;
+            int bottom = (y + size) * stride;
+            for (int x = 0; x < columns; x++) {
+                int squareSum = sat[bottom + x + size] - sat[top + x + size] - sat[bottom + x] + sat[top + x];
+                if (squareSum > bestPower) {
+                    bestPower = squareSum;
+                    bestX = x;
+                    bestY = y;
+                }
+            }
+        }
+
+        return new FuelCellSquare(new Point(bestX, bestY), bestPower, size);
+    }
+
+    // Class that searches one board at a time for its best square on the calling thread. Its summed-area table
+    // buffer is kept between boards and only grows when a larger board comes along, so evaluating many boards
+    // does not allocate a table per board. A searcher is not thread-safe; evaluateBoards gives each worker its own.
+    static class BoardSearcher {
+        int[] sat = new int[0];
+
+        // Returns the best square of the board with the given serial number, among the squares with a size in
+        // [minSize, maxSize]. Ties are broken the same way as the sequential scan.
+        public FuelCellSquare search(int serialNumber, int width, int height, int minSize, int maxSize) {
+            int tableSize = paddedSummedAreaTableSize(width, height);
+            if (sat.length < tableSize)
+                sat = new int[tableSize];
+            fillPaddedSummedAreaTable(sat, serialNumber, width, height);
+
+            FuelCellSquare best = null;
+            for (int size = minSize; size <= maxSize; size++) {
+                best = betterSquare(best, scanSquares(sat, width, size, 0, height - size + 1));
+            }
+
+            return best;
+        }
+    }
+
+    // The ways part 2 can be solved.
+    // HALVING_LAYERS: part2, building each size's sums from the layer of half its size or one less.
+    // SUMMED_AREA_TABLE: part2WithSummedAreaTable, scanning every square with a summed-area table.
+    // PARALLEL_SUMMED_AREA_TABLE: part2WithParallelSummedAreaTable, the same scan split across a fork-join pool.
+    // PRUNED_SUMMED_AREA_TABLE: findMaxSquarePruned, skipping squares that provably cannot beat the best one.
+    enum Part2Strategy {
+        HALVING_LAYERS,
+        SUMMED_AREA_TABLE,
+        PARALLEL_SUMMED_AREA_TABLE,
+        PRUNED_SUMMED_AREA_TABLE
+    }
+
+    // Class keeping the k best squares seen so far in a min-heap, so the worst of them is always on top and is
+    // the one to beat. Used by findTopSquares, one per worker.
+    static class TopSquares {
+        // Orders squares from worst to best: lower power level first, and on a tie, the square that comes later in
+        // the sequential scan order first.
+        private static final Comparator<FuelCellSquare> WORST_FIRST = (a, b) -> {
+            if (a.powerLevel != b.powerLevel)
+                return Integer.compare(a.powerLevel, b.powerLevel);
+            if (a.size != b.size)
+                return Integer.compare(b.size, a.size);
+            if (a.point.y != b.point.y)
+                return Integer.compare(b.point.y, a.point.y);
+            return Integer.compare(b.point.x, a.point.x);
+        };
+
+        int k;
+        PriorityQueue<FuelCellSquare> heap;
+
+        public TopSquares(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(k, WORST_FIRST);
+        }
+
+        // Offers every square of the given size to the heap. A square is only allocated if it beats the worst
+        // square in a full heap. Squares of the same size are scanned in order, so a later square with the same
+        // power level as the worst one never beats it.
+        public void addSquaresOfSize(int[] sat, int width, int height, int size) {
+            int stride = width + 1;
+            for (int y = 0; y < height - size + 1; y++) {
+                for (int x = 0; x < width - size + 1; x++) {
+                    int squareSum = rectangleSum(sat, stride, x, y, x + size, y + size);
+                    if (heap.size() < k) {
+                        heap.add(new FuelCellSquare(new Point(x, y), squareSum, size));
+                    } else if (squareSum > heap.peek().powerLevel
+                            || (squareSum == heap.peek().powerLevel && heap.peek().size > size)) {
+                        add(new FuelCellSquare(new Point(x, y), squareSum, size));
+                    }
+                }
+            }
+        }
+
+        // Adds the square to the heap, dropping the worst square if the heap grows past k.
+        private void add(FuelCellSquare square) {
+            heap.add(square);
+            if (heap.size() > k)
+                heap.poll();
+        }
+
+        // Adds the squares of the other heap to this one and returns this heap.
+        public TopSquares merge(TopSquares other) {
+            for (FuelCellSquare square : other.heap) {
+                add(square);
+            }
+            return this;
+        }
+
+        // Returns the squares in the heap, best first.
+        public List<FuelCellSquare> bestFirst() {
+            List<FuelCellSquare> squares = new ArrayList<>(heap);
+            squares.sort(WORST_FIRST.reversed());
+            return squares;
+        }
+    }
+
+    // Class to associate the best square found by findMaxSquarePruned with the number of candidate squares
+    // it skipped and the number it examined.
+    static class PrunedSearchResult {
+        FuelCellSquare square;
+        long candidatesPruned;
+        long candidatesExamined;
+
+        public PrunedSearchResult(FuelCellSquare square, long candidatesPruned, long candidatesExamined) {
+            this.square = square;
+            this.candidatesPruned = candidatesPruned;
+            this.candidatesExamined = candidatesExamined;
+        }
+    }
+
     // Class to associate a top-left point of an n x n square of fuel cells
     // with the sum of the power levels of all n^2 of its fuel cells and the size of n.
     static class FuelCellSquare {
@@ -245,5 +844,9 @@ public class Day11_Chronal_Charge {
             this.point = point;
             this.powerLevel = powerLevel;
         }
+
+        public String toString() {
+            return point.x + "," + point.y + "," + size + "," + powerLevel;
+        }
     }
 }
\ No newline at end of file
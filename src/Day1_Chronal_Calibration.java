@@ -2,42 +2,43 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
-public class Day1_Chronal_Calibration {
+public class Day1_Chronal_Calibration implements Puzzle<int[]> {
     public static void main(String[] args) {
-        File file = new File("./inputs/day1/day1.txt");
+        PuzzleRunner.run(new Day1_Chronal_Calibration());
+    }
 
-        try {
-            Scanner sc = new Scanner(file);
+    public String inputPath() {
+        return "./inputs/day1/day1.txt";
+    }
 
-            List<String> instructions = new ArrayList<>();
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                instructions.add(line);
+    // Reads one instruction per line, such as "+16" or "-2", as the signed change it makes to the frequency.
+    public int[] parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
+            int[] changes = new int[16];
+            int count = 0;
+            while (reader.nextLine()) {
+                if (count == changes.length)
+                    changes = Arrays.copyOf(changes, count * 2);
+                changes[count++] = reader.nextInt();
             }
+            return Arrays.copyOf(changes, count);
+        }
+    }
 
-            int part1 = part1(instructions);
-            System.out.println("Part 1 is: " + part1);
-
-            int part2 = part2(instructions);
-            System.out.println("Part 1 is: " + part2);
+    public Object solvePart1(int[] changes) {
+        return part1(changes);
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(int[] changes) {
+        return part2(changes);
     }
 
     // Part 1: Iterates through the list of instructions, applying changes to a result variable.
-    private static int part1(List<String> instructions) {
+    private static int part1(int[] changes) {
         int result = 0;
 
-        for (String instruction : instructions) {
-            char firstChar = instruction.charAt(0);
-            int num = Integer.parseInt(instruction.substring(1));
-            if (firstChar == '+') {
-                result += num;
-            } else if (firstChar == '-') {
-                result -= num;
-            }
+        for (int change : changes) {
+            result += change;
         }
 
         return result;
@@ -46,21 +47,14 @@ public class Day1_Chronal_Calibration {
     // Part 2: Keep a set of frequencies that we've seen. Apply each instruction to our result,
     // storing it in our set if we haven't seen it yet. As soon as we've seen a frequency before, we break
     // and return that frequency.
-    private static int part2(List<String> instructions) {
+    private static int part2(int[] changes) {
         Set<Integer> frequencies = new HashSet<>();
 
         int result = 0;
         frequencies.add(result);
         int i = 0;
         while (true) {
-            String instruction = instructions.get(i % instructions.size());
-            char firstChar = instruction.charAt(0);
-            int num = Integer.parseInt(instruction.substring(1));
-
-            if (firstChar == '+')
-                result += num;
-            else if (firstChar == '-')
-                result -= num;
+            result += changes[i % changes.length];
 
             if (frequencies.contains(result))
                 break;
@@ -1,29 +1,56 @@
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
-public class Day2_Inventory_Management_System {
-    public static void main(String[] args) {
-        File file = new File("./inputs/day2/day2.txt");
+public class Day2_Inventory_Management_System implements Puzzle<List<String>> {
+    public static void main(String[] args) throws Exception {
+        // Lookup mode: print the input's box IDs within a Hamming distance of each given ID.
+        // Usage: lookup <distance> <id>...
+        if (args.length > 1 && args[0].equals("lookup")) {
+            runLookups(Integer.parseInt(args[1]), Arrays.asList(args).subList(2, args.length));
+            return;
+        }
+
+        // Load mode: query and insert into an index of the input's IDs (plus generated ones) from many threads,
+        // then report throughput and latency percentiles.
+        // Usage: load <threads> <seconds> [<distance> <generated IDs> <insert percentage>]
+        if (args.length > 2 && args[0].equals("load")) {
+            runLoadTest(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    args.length > 3 ? Integer.parseInt(args[3]) : 1,
+                    args.length > 4 ? Integer.parseInt(args[4]) : 0,
+                    args.length > 5 ? Integer.parseInt(args[5]) : 10);
+            return;
+        }
 
-        try {
-            Scanner sc = new Scanner(file);
+        PuzzleRunner.run(new Day2_Inventory_Management_System());
+    }
 
+    public String inputPath() {
+        return "./inputs/day2/day2.txt";
+    }
+
+    // Reads one box ID per line.
+    public List<String> parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
             List<String> boxes = new ArrayList<>();
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                boxes.add(line);
+            while (reader.nextLine()) {
+                boxes.add(reader.lineString());
             }
+            return boxes;
+        }
+    }
 
-            int part1 = part1(boxes);
-            System.out.println("Part 1 is: " + part1);
-
-            String part2 = part2(boxes);
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(List<String> boxes) {
+        return part1(boxes);
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(List<String> boxes) {
+        return part2Packed(boxes);
     }
 
     // Part 1: Iterate through each box ID, keeping track of a dictionary of character frequencies.
@@ -82,7 +109,7 @@ public class Day2_Inventory_Management_System {
 
     // Part 2: Iterate through all pairs of box IDs and checking the strings differ by exactly one character
     // in one location. Return a string of the characters in common.
-    private static String part2(List<String> boxes) {
+    static String part2(List<String> boxes) {
         for (int i = 0; i < boxes.size()-1; i++) {
             for (int j = i+1; j < boxes.size(); j++) {
                 int index = stringDifferIndex(boxes.get(i), boxes.get(j));
@@ -94,4 +121,387 @@ public class Day2_Inventory_Management_System {
 
         return "";
     }
+
+    // Part 2 (packed): Same search as part2, on box IDs packed into longs so that one XOR compares several
+    // characters at once (see PackedBoxIds). The pairs are split into square tiles of TILE_SIZE x TILE_SIZE IDs,
+    // small enough that both sides of a tile stay in cache, and the rows of tiles are searched in parallel.
+    // Like part2, this returns the first matching pair in (i, j) order: each row remembers the first match found
+    // in it, rows after the earliest known match are skipped, and the earliest match overall wins.
+    static String part2Packed(List<String> boxes) {
+        PackedBoxIds ids = new PackedBoxIds(boxes);
+        int n = ids.size();
+
+        // Earliest match so far, as (i << 32 | j), or Long.MAX_VALUE if none was found yet.
+        AtomicLong earliest = new AtomicLong(Long.MAX_VALUE);
+
+        int rowTiles = (n + PackedBoxIds.TILE_SIZE - 1) / PackedBoxIds.TILE_SIZE;
+        IntStream.range(0, rowTiles).parallel().forEach(tile -> {
+            int rowStart = tile * PackedBoxIds.TILE_SIZE;
+            int rowEnd = Math.min(n, rowStart + PackedBoxIds.TILE_SIZE);
+            int[] firstMatch = new int[rowEnd - rowStart];
+            Arrays.fill(firstMatch, -1);
+
+            for (int colStart = rowStart; colStart < n; colStart += PackedBoxIds.TILE_SIZE) {
+                int colEnd = Math.min(n, colStart + PackedBoxIds.TILE_SIZE);
+                int lastRow = (int) Math.min(rowEnd - 1, earliest.get() >>> 32);
+
+                for (int i = rowStart; i <= lastRow; i++) {
+                    if (firstMatch[i - rowStart] != -1)
+                        continue;
+
+                    int j = ids.nextCandidate(i, Math.max(i + 1, colStart), colEnd);
+                    while (j < colEnd) {
+                        if (ids.differIndex(i, j) != -1) {
+                            firstMatch[i - rowStart] = j;
+                            earliest.accumulateAndGet(((long) i << 32) | j, Math::min);
+                            lastRow = Math.min(lastRow, i);
+                            break;
+                        }
+                        j = ids.nextCandidate(i, j + 1, colEnd);
+                    }
+                }
+            }
+        });
+
+        long match = earliest.get();
+        if (match == Long.MAX_VALUE)
+            return "";
+
+        int i = (int) (match >>> 32);
+        int index = ids.differIndex(i, (int) match);
+        return boxes.get(i).substring(0,index) + boxes.get(i).substring(index+1);
+    }
+
+    // Class holding box IDs packed into longs for fast comparison. Each ID takes the same number of words, with
+    // its characters in lanes of 8 bits (or 16 bits if any character does not fit in 8), lowest lane first,
+    // and zeros after the end of the ID. All the words are stored in one array, ID after ID.
+    //
+    // Two IDs are compared a word at a time: after XORing the words, a lane is non-zero exactly where the
+    // characters differ. A SWAR step sets the top bit of every non-zero lane, so Long.bitCount gives the number of
+    // differing characters in the word and Long.numberOfTrailingZeros the position of the first one.
+    //
+    // Most pairs already differ in more than one character of their first word, so the first words are also kept
+    // in an array of their own. Checking them first streams through one contiguous array instead of striding over
+    // all the words of every ID.
+    static class PackedBoxIds {
+        static final int TILE_SIZE = 256;
+
+        int size;
+        int laneBits;
+        int laneShift;
+        int lanesPerWord;
+        int wordsPerId;
+        long[] words;
+        long[] firstWords;
+        int[] lengths;
+
+        // Whether every ID fills its first word, so first words can be compared without masking.
+        boolean fullFirstWords;
+
+        // Masks for the SWAR step: all bits but the top one of each lane, and the top bit of each lane.
+        long lowBits;
+        long highBits;
+
+        public PackedBoxIds(List<String> boxes) {
+            size = boxes.size();
+            lengths = new int[size];
+
+            int minLength = Integer.MAX_VALUE;
+            int maxLength = 0;
+            boolean wideChars = false;
+            for (int i = 0; i < size; i++) {
+                String box = boxes.get(i);
+                lengths[i] = box.length();
+                minLength = Math.min(minLength, box.length());
+                maxLength = Math.max(maxLength, box.length());
+                for (int k = 0; k < box.length() && !wideChars; k++) {
+                    wideChars = box.charAt(k) > 0xFF;
+                }
+            }
+
+            laneBits = wideChars ? 16 : 8;
+            laneShift = Integer.numberOfTrailingZeros(laneBits);
+            lanesPerWord = 64 / laneBits;
+            fullFirstWords = minLength >= lanesPerWord;
+            wordsPerId = Math.max(1, (maxLength + lanesPerWord - 1) / lanesPerWord);
+            words = new long[size * wordsPerId];
+
+            long lane = (1L << (laneBits - 1)) - 1;
+            for (int k = 0; k < lanesPerWord; k++) {
+                lowBits |= lane << (k * laneBits);
+                highBits |= (lane + 1) << (k * laneBits);
+            }
+
+            for (int i = 0; i < size; i++) {
+                String box = boxes.get(i);
+                for (int k = 0; k < box.length(); k++) {
+                    words[i * wordsPerId + k / lanesPerWord] |= (long) box.charAt(k) << (k % lanesPerWord * laneBits);
+                }
+            }
+
+            firstWords = new long[size];
+            for (int i = 0; i < size; i++) {
+                firstWords[i] = words[i * wordsPerId];
+            }
+        }
+
+        // Returns the first ID from start (inclusive) to end (exclusive) that could differ from the given ID by one
+        // character, judging by first words alone, or end if there is none.
+        public int nextCandidate(int id, int start, int end) {
+            if (!fullFirstWords)
+                return start;
+
+            long[] first = firstWords;
+            long low = lowBits;
+            long high = highBits;
+            long word = first[id];
+            for (int j = start; j < end; j++) {
+                long diff = word ^ first[j];
+                if (Long.bitCount((((diff & low) + low) | diff) & high) <= 1)
+                    return j;
+            }
+            return end;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Returns the same as stringDifferIndex on the two IDs: the index of the only differing character among
+        // the characters both IDs have, or -1 if there is none or more than one.
+        public int differIndex(int first, int second) {
+            if (lengths[first] == lengths[second])
+                return differIndexSameLength(first, second);
+
+            int length = Math.min(lengths[first], lengths[second]);
+            int fullWords = length / lanesPerWord;
+            int base1 = first * wordsPerId;
+            int base2 = second * wordsPerId;
+
+            int differIndex = -1;
+            for (int w = 0; w <= fullWords && w < wordsPerId; w++) {
+                long diff = words[base1 + w] ^ words[base2 + w];
+                if (w == fullWords) {
+                    // Only the first lanes of the last word hold characters both IDs have.
+                    int lanes = length - w * lanesPerWord;
+                    if (lanes == 0)
+                        break;
+                    diff &= -1L >>> (64 - lanes * laneBits);
+                }
+                if (diff == 0)
+                    continue;
+
+                long differing = (((diff & lowBits) + lowBits) | diff) & highBits;
+                if (differIndex != -1 || Long.bitCount(differing) > 1)
+                    return -1;
+                differIndex = w * lanesPerWord + (Long.numberOfTrailingZeros(differing) >>> laneShift);
+            }
+
+            return differIndex;
+        }
+
+        // differIndex for IDs of the same length, whose lanes past the end are zero in both, so no word needs masking.
+        private int differIndexSameLength(int first, int second) {
+            int base1 = first * wordsPerId;
+            int base2 = second * wordsPerId;
+
+            int differIndex = -1;
+            for (int w = 0; w < wordsPerId; w++) {
+                long diff = words[base1 + w] ^ words[base2 + w];
+                if (diff == 0)
+                    continue;
+
+                long differing = (((diff & lowBits) + lowBits) | diff) & highBits;
+                if (differIndex != -1 || Long.bitCount(differing) > 1)
+                    return -1;
+                differIndex = w * lanesPerWord + (Long.numberOfTrailingZeros(differing) >>> laneShift);
+            }
+
+            return differIndex;
+        }
+    }
+
+    // Prints the input's box IDs within the given distance of each of the IDs.
+    private static void runLookups(int distance, List<String> queries) throws Exception {
+        Day2_Inventory_Management_System puzzle = new Day2_Inventory_Management_System();
+        BoxIdIndex index = new BoxIdIndex(distance, PuzzleRunner.parseInput(puzzle));
+
+        for (String query : queries) {
+            System.out.println(query + ": " + index.lookup(query));
+        }
+    }
+
+    // Runs lookups and inserts against one shared index from the given number of threads for the given time.
+    // Each lookup is a stored ID with up to distance + 1 random characters changed, so some have matches and some
+    // do not; the given percentage of operations instead insert a new random ID of the same length.
+    private static void runLoadTest(int threads, int seconds, int distance, int generatedIds, int insertPercentage) throws Exception {
+        List<String> boxes = new ArrayList<>(PuzzleRunner.parseInput(new Day2_Inventory_Management_System()));
+        if (generatedIds > 0) {
+            StringWriter text = new StringWriter();
+            InputGenerator.generate(2, generatedIds, 0, new PrintWriter(text));
+            boxes.addAll(Arrays.asList(text.toString().split("\n")));
+        }
+
+        long buildStart = System.nanoTime();
+        BoxIdIndex index = new BoxIdIndex(distance, boxes);
+        System.out.printf("Indexed %d IDs in %.1f ms%n", index.size(), (System.nanoTime() - buildStart) / 1e6);
+
+        String[] stored = boxes.toArray(new String[0]);
+        LatencyHistogram lookupLatencies = new LatencyHistogram();
+        LatencyHistogram insertLatencies = new LatencyHistogram();
+        AtomicLong matches = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    char[] id = stored[random.nextInt(stored.length)].toCharArray();
+
+                    if (random.nextInt(100) < insertPercentage) {
+                        for (int i = 0; i < id.length; i++) {
+                            id[i] = (char) ('a' + random.nextInt(26));
+                        }
+                        String newId = new String(id);
+                        long start = System.nanoTime();
+                        index.insert(newId);
+                        insertLatencies.record(System.nanoTime() - start);
+                    } else {
+                        int changes = id.length > 0 ? random.nextInt(distance + 2) : 0;
+                        for (int i = 0; i < changes; i++) {
+                            id[random.nextInt(id.length)] = (char) ('a' + random.nextInt(26));
+                        }
+                        String query = new String(id);
+                        long start = System.nanoTime();
+                        int found = index.lookup(query).size();
+                        lookupLatencies.record(System.nanoTime() - start);
+                        matches.addAndGet(found);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        System.out.printf("Lookups: %.0f/s, %d matches; %s%n", lookupLatencies.count() / (double) seconds, matches.get(), lookupLatencies.summary());
+        System.out.printf("Inserts: %.0f/s; %s%n", insertLatencies.count() / (double) seconds, insertLatencies.summary());
+        System.out.println("Index holds " + index.size() + " IDs");
+    }
+
+    // Persistent index of box IDs for fuzzy lookups: finds the stored IDs within a Hamming distance of a scanned
+    // ID, that is, of the same length and differing in at most that many positions. Lookups and inserts can be
+    // made from any number of threads at once.
+    //
+    // The index uses the pigeonhole principle: an ID is split into maxDistance + 1 segments, and two IDs of the
+    // same length that differ in at most maxDistance positions must agree on at least one whole segment. Each
+    // segment position has its own hash table from segment text to the IDs having it, so a lookup gathers the
+    // IDs sharing any of its segments and only checks the distance to those, instead of scanning every ID.
+    static class BoxIdIndex {
+        int maxDistance;
+
+        // For each ID length, one table per segment position from segment text to the IDs with that segment.
+        Map<Integer, List<Map<String, Set<String>>>> tablesByLength = new ConcurrentHashMap<>();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        public BoxIdIndex(int maxDistance) {
+            if (maxDistance < 0)
+                throw new IllegalArgumentException("Distance must not be negative: " + maxDistance);
+            this.maxDistance = maxDistance;
+        }
+
+        public BoxIdIndex(int maxDistance, Collection<String> boxes) {
+            this(maxDistance);
+            for (String box : boxes) {
+                insert(box);
+            }
+        }
+
+        // Adds the ID to the index, returning false if it was already there.
+        public boolean insert(String id) {
+            if (!ids.add(id))
+                return false;
+
+            List<Map<String, Set<String>>> tables = tables(id.length());
+            for (int segment = 0; segment < tables.size(); segment++) {
+                tables.get(segment).computeIfAbsent(segment(id, segment), key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            return true;
+        }
+
+        public int size() {
+            return ids.size();
+        }
+
+        // Returns the stored IDs within maxDistance of the given ID, including the ID itself if it is stored.
+        public Set<String> lookup(String id) {
+            return lookup(id, maxDistance);
+        }
+
+        // Returns the stored IDs within the given distance of the given ID, which must be at most maxDistance.
+        public Set<String> lookup(String id, int distance) {
+            if (distance > maxDistance)
+                throw new IllegalArgumentException("Index only supports distances up to " + maxDistance + ": " + distance);
+
+            Set<String> matches = new TreeSet<>();
+            List<Map<String, Set<String>>> tables = tablesByLength.get(id.length());
+            if (tables == null)
+                return matches;
+
+            for (int segment = 0; segment < tables.size(); segment++) {
+                Set<String> candidates = tables.get(segment).get(segment(id, segment));
+                if (candidates == null)
+                    continue;
+
+                for (String candidate : candidates) {
+                    if (hammingDistanceAtMost(id, candidate, distance))
+                        matches.add(candidate);
+                }
+            }
+            return matches;
+        }
+
+        private List<Map<String, Set<String>>> tables(int length) {
+            return tablesByLength.computeIfAbsent(length, l -> {
+                List<Map<String, Set<String>>> tables = new ArrayList<>();
+                for (int segment = 0; segment < segmentCount(l); segment++) {
+                    tables.add(new ConcurrentHashMap<>());
+                }
+                return tables;
+            });
+        }
+
+        // An ID is split into maxDistance + 1 segments. IDs no longer than maxDistance are within it of every ID of
+        // their length, so they all go under one empty segment instead.
+        private int segmentCount(int length) {
+            return length > maxDistance ? maxDistance + 1 : 1;
+        }
+
+        // Returns the text of the given segment of the ID. The segments are as even as possible.
+        private String segment(String id, int segment) {
+            if (id.length() <= maxDistance)
+                return "";
+
+            int count = maxDistance + 1;
+            int start = id.length() * segment / count;
+            int end = id.length() * (segment + 1) / count;
+            return id.substring(start, end);
+        }
+    }
+
+    // Returns whether the two IDs have the same length and differ in at most the given number of positions.
+    static boolean hammingDistanceAtMost(String b1, String b2, int distance) {
+        if (b1.length() != b2.length())
+            return false;
+
+        int differences = 0;
+        for (int i = 0; i < b1.length(); i++) {
+            if (b1.charAt(i) != b2.charAt(i) && ++differences > distance)
+                return false;
+        }
+        return true;
+    }
 }
\ No newline at end of file
@@ -1,37 +1,44 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.IntStream;
+
+public class Day3_No_Matter_How_You_Slice_It implements Puzzle<List<Day3_No_Matter_How_You_Slice_It.Fabric>> {
+    // Rows per stripe in paintInStripes: 64 rows of a 1000-wide fabric are 2 KB per bitplane, which stays in cache.
+    private static final int STRIPE_HEIGHT = 64;
 
-public class Day3_No_Matter_How_You_Slice_It {
     public static void main(String[] args) {
-        File file = new File("./inputs/day3/day3.txt");
+        PuzzleRunner.run(new Day3_No_Matter_How_You_Slice_It());
+    }
 
-        try {
-            Scanner sc = new Scanner(file);
+    public String inputPath() {
+        return "./inputs/day3/day3.txt";
+    }
+
+    // Reads one claim per line, e.g. "#1 @ 1,3: 4x4".
+    public List<Fabric> parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
             List<Fabric> fabrics = new ArrayList<>();
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] tokens = line.split(" ");
-                int id = Integer.parseInt(tokens[0].substring(1));
-                String[] offsets = tokens[2].split(",");
-                int left = Integer.parseInt(offsets[0]);
-                int top = Integer.parseInt(offsets[1].substring(0,offsets[1].length()-1));
-                String[] dimensions = tokens[3].split("x");
-                int width = Integer.parseInt(dimensions[0]);
-                int height = Integer.parseInt(dimensions[1]);
+            while (reader.nextLine()) {
+                int id = reader.nextInt();
+                int left = reader.nextInt();
+                int top = reader.nextInt();
+                int width = reader.nextInt();
+                int height = reader.nextInt();
                 fabrics.add(new Fabric(id, left, top, width, height));
             }
 
-            int part1 = part1(fabrics);
-            System.out.println("Part 1 is: " + part1);
+            return fabrics;
+        }
+    }
 
-            int part2 = part2(fabrics);
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(List<Fabric> fabrics) {
+        return paintInStripes(fabrics, STRIPE_HEIGHT, false).overlapArea;
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(List<Fabric> fabrics) {
+        return paintInStripes(fabrics, STRIPE_HEIGHT, true).intactId;
     }
 
     // Return the square inches where two or more fabrics overlap.
@@ -66,7 +73,7 @@ public class Day3_No_Matter_How_You_Slice_It {
     // Part 1: Iterate through the list of fabrics and fill in a grid with fabric values: a 'X' indicating
     // that at least two fabrics have been placed there and a '*' indicating that a single fabric is placed there.
     // Return the count of all 'X' values.
-    private static int part1(List<Fabric> fabrics) {
+    static int part1(List<Fabric> fabrics) {
         char[][] grid = new char[1000][1000]; // we assume 1000x1000 grid as the problem
 
         for (Fabric fabric : fabrics) {
@@ -91,7 +98,7 @@ public class Day3_No_Matter_How_You_Slice_It {
     }
 
     // Part 2:
-    private static int part2(List<Fabric> fabrics) {
+    static int part2(List<Fabric> fabrics) {
         int[][] grid = new int[1000][1000];
 
         for (Fabric fabric : fabrics) {
@@ -129,6 +136,212 @@ public class Day3_No_Matter_How_You_Slice_It {
         return 0;
     }
 
+    // Part 1 (bitplanes): Same count as part1, with the grid kept as two bitplanes instead of a char per cell
+    // (see FabricBitplanes). Each fabric is painted as masked ORs over the words of its rows, and the overlapping
+    // square inches are counted with Long.bitCount over the "covered at least twice" plane.
+    static int part1WithBitplanes(List<Fabric> fabrics) {
+        FabricBitplanes planes = FabricBitplanes.covering(fabrics);
+        for (Fabric fabric : fabrics) {
+            planes.paint(fabric);
+        }
+
+        return (int) planes.overlapArea();
+    }
+
+    // Part 2 (bitplanes): Paint every fabric as in part1WithBitplanes, then return the id of the fabric none of whose
+    // square inches is covered twice. The puzzle has exactly one such fabric; if there are several, returns the
+    // smallest id.
+    static int part2WithBitplanes(List<Fabric> fabrics) {
+        FabricBitplanes planes = FabricBitplanes.covering(fabrics);
+        for (Fabric fabric : fabrics) {
+            planes.paint(fabric);
+        }
+
+        int intactId = 0;
+        for (Fabric fabric : fabrics) {
+            if (fabric.width > 0 && fabric.height > 0 && planes.isIntact(fabric) && (intactId == 0 || fabric.id < intactId))
+                intactId = fabric.id;
+        }
+
+        return intactId;
+    }
+
+    // Parts 1 and 2 (striped): Same answers as part1WithBitplanes and part2WithBitplanes, painted in parallel.
+    // The fabric is split into stripes of stripeHeight rows, and each fabric is assigned to every stripe its rows
+    // touch. Each stripe is then painted by one worker, which only writes the rows of its stripe, so the workers
+    // share the bitplanes without any locking. Each worker also counts the overlapping square inches in its stripe
+    // and, if findIntact is set, notes which of its fabrics are covered twice there. At the end, the counts are added
+    // up, and a fabric is intact if no stripe found it covered twice. Without findIntact, intactId is left at 0.
+    static StripedPaintResult paintInStripes(List<Fabric> fabrics, int stripeHeight, boolean findIntact) {
+        FabricBitplanes planes = FabricBitplanes.covering(fabrics);
+        int stripes = (planes.height + stripeHeight - 1) / stripeHeight;
+
+        // Lists of the fabrics in each stripe, all in one array: stripe s has the fabrics at
+        // stripeFabrics[stripeStart[s]] to stripeFabrics[stripeStart[s + 1] - 1].
+        int[] stripeStart = new int[stripes + 1];
+        for (Fabric fabric : fabrics) {
+            if (fabric.width <= 0 || fabric.height <= 0)
+                continue;
+            for (int s = fabric.top / stripeHeight; s <= (fabric.top + fabric.height - 1) / stripeHeight; s++) {
+                stripeStart[s + 1]++;
+            }
+        }
+        for (int s = 0; s < stripes; s++) {
+            stripeStart[s + 1] += stripeStart[s];
+        }
+        int[] stripeFabrics = new int[stripeStart[stripes]];
+        int[] filled = Arrays.copyOf(stripeStart, stripes);
+        for (int i = 0; i < fabrics.size(); i++) {
+            Fabric fabric = fabrics.get(i);
+            if (fabric.width <= 0 || fabric.height <= 0)
+                continue;
+            for (int s = fabric.top / stripeHeight; s <= (fabric.top + fabric.height - 1) / stripeHeight; s++) {
+                stripeFabrics[filled[s]++] = i;
+            }
+        }
+
+        long[] stripeOverlapArea = new long[stripes];
+        BitSet[] stripeOverlapped = new BitSet[stripes];
+        IntStream.range(0, stripes).parallel().forEach(s -> {
+            int fromRow = s * stripeHeight;
+            int toRow = Math.min(planes.height, fromRow + stripeHeight);
+
+            for (int k = stripeStart[s]; k < stripeStart[s + 1]; k++) {
+                planes.paint(fabrics.get(stripeFabrics[k]), fromRow, toRow);
+            }
+
+            BitSet overlapped = new BitSet();
+            for (int k = stripeStart[s]; k < stripeStart[s + 1] && findIntact; k++) {
+                if (!planes.isIntact(fabrics.get(stripeFabrics[k]), fromRow, toRow))
+                    overlapped.set(stripeFabrics[k]);
+            }
+
+            stripeOverlapArea[s] = planes.overlapArea(fromRow, toRow);
+            stripeOverlapped[s] = overlapped;
+        });
+
+        long overlapArea = 0;
+        BitSet overlapped = new BitSet(fabrics.size());
+        for (int s = 0; s < stripes; s++) {
+            overlapArea += stripeOverlapArea[s];
+            overlapped.or(stripeOverlapped[s]);
+        }
+
+        int intactId = 0;
+        for (int i = overlapped.nextClearBit(0); i < fabrics.size() && findIntact; i = overlapped.nextClearBit(i + 1)) {
+            Fabric fabric = fabrics.get(i);
+            if (fabric.width > 0 && fabric.height > 0 && (intactId == 0 || fabric.id < intactId))
+                intactId = fabric.id;
+        }
+
+        return new StripedPaintResult(overlapArea, intactId);
+    }
+
+    // Class holding the answers found by paintInStripes.
+    static class StripedPaintResult {
+        long overlapArea;
+        int intactId;
+
+        public StripedPaintResult(long overlapArea, int intactId) {
+            this.overlapArea = overlapArea;
+            this.intactId = intactId;
+        }
+    }
+
+    // Class to represent the fabric grid as two bitplanes of one bit per square inch: "covered at least once" and
+    // "covered at least twice". Each row takes wordsPerRow longs, stored row after row in one array per plane.
+    // That is 2 bits per square inch instead of the 32 of an int[][] of owners, so the same heap holds fabrics
+    // 16 times larger, and painting or checking a row handles 64 square inches per word operation.
+    static class FabricBitplanes {
+        int width;
+        int height;
+        int wordsPerRow;
+        long[] coveredOnce;
+        long[] coveredTwice;
+
+        public FabricBitplanes(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.wordsPerRow = (width + 63) >>> 6;
+            this.coveredOnce = new long[Math.multiplyExact(wordsPerRow, height)];
+            this.coveredTwice = new long[coveredOnce.length];
+        }
+
+        // Returns empty bitplanes just large enough for all the fabrics, at least the 1000x1000 of the puzzle.
+        public static FabricBitplanes covering(List<Fabric> fabrics) {
+            int width = 1000;
+            int height = 1000;
+            for (Fabric fabric : fabrics) {
+                width = Math.max(width, fabric.left + fabric.width);
+                height = Math.max(height, fabric.top + fabric.height);
+            }
+            return new FabricBitplanes(width, height);
+        }
+
+        // Marks the square inches of the fabric as covered: those already covered once become covered twice.
+        public void paint(Fabric fabric) {
+            paint(fabric, 0, height);
+        }
+
+        // Same as paint, but only on the fabric's rows from fromRow (inclusive) to toRow (exclusive).
+        public void paint(Fabric fabric, int fromRow, int toRow) {
+            if (fabric.width <= 0)
+                return;
+
+            int firstWord = fabric.left >>> 6;
+            int lastWord = (fabric.left + fabric.width - 1) >>> 6;
+            long firstMask = -1L << fabric.left;
+            long lastMask = -1L >>> (63 - ((fabric.left + fabric.width - 1) & 63));
+
+            for (int row = Math.max(fromRow, fabric.top); row < Math.min(toRow, fabric.top + fabric.height); row++) {
+                int base = row * wordsPerRow;
+                for (int word = firstWord; word <= lastWord; word++) {
+                    long mask = (word == firstWord ? firstMask : -1L) & (word == lastWord ? lastMask : -1L);
+                    coveredTwice[base + word] |= coveredOnce[base + word] & mask;
+                    coveredOnce[base + word] |= mask;
+                }
+            }
+        }
+
+        // Returns whether none of the fabric's square inches is covered twice.
+        public boolean isIntact(Fabric fabric) {
+            return isIntact(fabric, 0, height);
+        }
+
+        // Same as isIntact, but only looking at the fabric's rows from fromRow (inclusive) to toRow (exclusive).
+        public boolean isIntact(Fabric fabric, int fromRow, int toRow) {
+            int firstWord = fabric.left >>> 6;
+            int lastWord = (fabric.left + fabric.width - 1) >>> 6;
+            long firstMask = -1L << fabric.left;
+            long lastMask = -1L >>> (63 - ((fabric.left + fabric.width - 1) & 63));
+
+            for (int row = Math.max(fromRow, fabric.top); row < Math.min(toRow, fabric.top + fabric.height); row++) {
+                int base = row * wordsPerRow;
+                for (int word = firstWord; word <= lastWord; word++) {
+                    long mask = (word == firstWord ? firstMask : -1L) & (word == lastWord ? lastMask : -1L);
+                    if ((coveredTwice[base + word] & mask) != 0)
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        // Returns the number of square inches covered at least twice.
+        public long overlapArea() {
+            return overlapArea(0, height);
+        }
+
+        // Returns the number of square inches covered at least twice in the rows from fromRow (inclusive) to
+        // toRow (exclusive).
+        public long overlapArea(int fromRow, int toRow) {
+            long area = 0;
+            for (int i = fromRow * wordsPerRow; i < toRow * wordsPerRow; i++) {
+                area += Long.bitCount(coveredTwice[i]);
+            }
+            return area;
+        }
+    }
+
     // Class to represent a fabric
     static class Fabric {
         int id;
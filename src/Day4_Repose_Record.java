@@ -2,42 +2,50 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
-public class Day4_Repose_Record {
+public class Day4_Repose_Record implements Puzzle<List<Day4_Repose_Record.Record>> {
     private static final int NEW_SHIFT_RECORD = 1;
     private static final int FALL_ASLEEP_RECORD = 2;
     private static final int WAKE_UP_RECORD = 3;
 
     public static void main(String[] args) {
-        File file = new File("./inputs/day4/day4.txt");
+        PuzzleRunner.run(new Day4_Repose_Record());
+    }
+
+    public String inputPath() {
+        return "./inputs/day4/day4.txt";
+    }
 
-        try {
-            Scanner sc = new Scanner(file);
+    // Reads one record per line and returns the records sorted by timestamp.
+    public List<Record> parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
             List<Record> records = new ArrayList<>();
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                int year = Integer.parseInt(line.substring(1,5));
-                int month = Integer.parseInt(line.substring(6,8));
-                int day = Integer.parseInt(line.substring(9,11));
-                int hour = Integer.parseInt(line.substring(12,14));
-                int minute = Integer.parseInt(line.substring(15,17));
-                Date d = new Date(year, month-1, day, hour, minute);
+            while (reader.nextLine()) {
+                int year = reader.parseInt(1,5);
+                int month = reader.parseInt(6,8);
+                int day = reader.parseInt(9,11);
+                int hour = reader.parseInt(12,14);
+                int minute = reader.parseInt(15,17);
+                long timestamp = Record.timestamp(year, month, day, hour, minute);
 
                 int guardId = -1;
                 int recordType;
 
                 // Use an int to denote the type of record it is:
-                // Either a guard falling asleep, waking up, or a new shift.
-                if (line.contains("asleep")) {
+                // Either a guard falling asleep, waking up, or a new shift,
+                // told apart by the first letter after the timestamp.
+                char event = reader.charAt(19);
+                if (event == 'f') {
                     recordType = FALL_ASLEEP_RECORD;
-                } else if (line.contains("wakes")) {
+                } else if (event == 'w') {
                     recordType = WAKE_UP_RECORD;
                 } else {
                     recordType = NEW_SHIFT_RECORD;
-                    guardId = Integer.parseInt(line.split(" ")[3].substring(1));
+                    reader.seek(reader.indexOf('#'));
+                    guardId = reader.nextInt();
                 }
 
-                Record r = new Record(d, recordType);
+                Record r = new Record(timestamp, minute, recordType);
 
                 if (guardId != -1) {
                     r.setGuardId(guardId);
@@ -48,31 +56,32 @@ public class Day4_Repose_Record {
 
             // We are not guaranteed that the input of records is ordered,
             // so we need to sort it first.
-            Collections.sort(records);
+            PhaseProfiler.Phase phase = PhaseProfiler.begin("sort");
+            try {
+                Collections.sort(records);
+            } finally {
+                phase.close();
+            }
 
-            int part1 = part1(records);
-            System.out.println("Part 1 is: " + part1);
+            return records;
+        }
+    }
 
-            int part2 = part2(records);
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(List<Record> records) {
+        return part1(records);
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(List<Record> records) {
+        return part2(records);
     }
 
-    // Given a dictionary that maps a guard to their list of sleep-time and wake-time pairs,
-    // return the ID of the guard who slept the most.
-    private static int findMostAsleepGuard(Map<Integer, List<Pair>> map) {
+    // Given a dictionary that maps a guard to their sleep timeline, return the ID of the guard who slept the most.
+    private static int findMostAsleepGuard(Map<Integer, SleepTimeline> map) {
         int guardIdMostAsleep = 0;
         int maxMinutesAsleep = 0;
 
         for (Integer guardId : map.keySet()) {
-            List<Pair> pairs = map.get(guardId);
-            int sum = 0;
-            for (Pair p : pairs) {
-                sum += (p.wakeMinute - p.sleepMinute + 1);
-            }
+            int sum = map.get(guardId).minutesAsleep();
             if (sum > maxMinutesAsleep) {
                 maxMinutesAsleep = sum;
                 guardIdMostAsleep = guardId;
@@ -82,58 +91,23 @@ public class Day4_Repose_Record {
         return guardIdMostAsleep;
     }
 
-    // Given a list of sleep-time and wake-time pairs, return the most common minute represented.
-    private static int findMostAsleepMinute(List<Pair> asleepTimes) {
-        Map<Integer, Integer> freq = new HashMap<>();
-
-        for (Pair range : asleepTimes) {
-            for (int i = range.sleepMinute; i <= range.wakeMinute; i++) {
-                if (freq.containsKey(i)) {
-                    freq.put(i, freq.get(i) + 1);
-                } else {
-                    freq.put(i, 1);
-                }
-            }
-        }
-
-        int maxMinute = 0;
-        int mostFrequent = 0;
-
-        for (Integer i : freq.keySet()) {
-            if (freq.get(i) > mostFrequent) {
-                maxMinute = i;
-                mostFrequent = freq.get(i);
-            }
-        }
-
-        return maxMinute;
-    }
-
-    // Iterates through the list of records and returns a dictionary mapping
-    // a guard id to a list of their sleep-time and wake-time pairs.
-    private static Map<Integer, List<Pair>> constructGuardIdTimeMappings(List<Record> records) {
-        int currentGuardId = 0;
+    // Iterates through the sorted records and returns a dictionary mapping a guard id to their sleep timeline,
+    // with one 60-bit mask per shift marking the minutes of the midnight hour they were asleep.
+    private static Map<Integer, SleepTimeline> constructGuardTimelines(List<Record> records) {
         int currentSleepMinute = 0;
+        SleepTimeline currentTimeline = null;
 
-        // Maps a guard ID to a list of sleep-time and wake-time pairs
-        Map<Integer, List<Pair>> map = new HashMap<>();
+        Map<Integer, SleepTimeline> map = new HashMap<>();
         for (int i = 0; i < records.size(); i++) {
             Record r = records.get(i);
 
             if (r.recordType == NEW_SHIFT_RECORD) {
-                currentGuardId = r.guardId;
+                currentTimeline = map.computeIfAbsent(r.guardId, id -> new SleepTimeline());
+                currentTimeline.startNight();
             } else if (r.recordType == FALL_ASLEEP_RECORD) {
-                currentSleepMinute = r.timestamp.getMinutes();
+                currentSleepMinute = r.minute;
             } else if (r.recordType == WAKE_UP_RECORD) {
-                if (map.containsKey(currentGuardId)) {
-                    List<Pair> currentPairs = map.get(currentGuardId);
-                    currentPairs.add(new Pair(currentSleepMinute, r.timestamp.getMinutes()-1));
-                    map.put(currentGuardId, currentPairs);
-                } else {
-                    List<Pair> newPair = new ArrayList<>();
-                    newPair.add(new Pair(currentSleepMinute, r.timestamp.getMinutes()-1));
-                    map.put(currentGuardId, newPair);
-                }
+                currentTimeline.addNap(currentSleepMinute, r.minute);
             }
         }
 
@@ -141,76 +115,138 @@ public class Day4_Repose_Record {
     }
 
     // Part 1: Finds the guard that has the most minutes asleep and the minute that guard spent asleep the most.
-    // Iterate through the records and construct a dictionary mapping guard IDs to a list of their
-    // sleep-time and wake-time pairs. Using that dictionary, find the guard who spent the most time asleep.
-    // Then, iterate through the sleep-time and wake-time pairs of that guard and find the minute (0-59) they
-    // were most often asleep.
+    // Iterate through the records and construct a dictionary mapping guard IDs to their nightly sleep masks.
+    // Using that dictionary, find the guard who spent the most time asleep by counting the set bits of their masks.
+    // Then, add up that guard's masks in bit-sliced counters and find the minute (0-59) they were most often asleep.
     private static int part1(List<Record> records) {
-        Map<Integer, List<Pair>> map = constructGuardIdTimeMappings(records);
+        Map<Integer, SleepTimeline> map = constructGuardTimelines(records);
         int guardIdMaxAsleep = findMostAsleepGuard(map);
-        int minuteMostAsleep = findMostAsleepMinute(map.get(guardIdMaxAsleep));
+        int minuteMostAsleep = map.get(guardIdMaxAsleep).minuteCounters().mostFrequentMinute();
 
         return guardIdMaxAsleep * minuteMostAsleep;
     }
 
     // Part 2: Of all guards, finds the guard who is most frequently asleep on the same minute.
-    // Iterate through the records and construct a dictionary mapping guard IDs to a list of their
-    // sleep-time and wake-time pairs. Using that dictionary, for each guard, calculate the frequency of each
-    // minute they spent asleep. Keep track of the most frequent minute that was spent asleep and the corresponding
-    // guard ID.
+    // Iterate through the records and construct a dictionary mapping guard IDs to their nightly sleep masks.
+    // For each guard, add up their masks in bit-sliced counters, which give how often they were asleep on their
+    // most common minute. Keep track of the highest such frequency, its minute and the corresponding guard ID.
     private static int part2(List<Record> records) {
-        Map<Integer, List<Pair>> map = constructGuardIdTimeMappings(records);
+        Map<Integer, SleepTimeline> map = constructGuardTimelines(records);
 
         int mostCommonMinute = 0;
         int freqOfMostCommonMinute = 0;
         int guardWithMostCommonMinute = 0;
 
         for (Integer guardId : map.keySet()) {
-            List<Pair> ranges = map.get(guardId);
-            Map<Integer, Integer> freq = new HashMap<>();
-            for (Pair p : ranges) {
-                for (int i = p.sleepMinute; i <= p.wakeMinute; i++) {
-                    if (freq.containsKey(i)) {
-                        freq.put(i, freq.get(i) + 1);
-                    } else {
-                        freq.put(i, 1);
-                    }
-                }
+            MinuteCounters counters = map.get(guardId).minuteCounters();
+            int freq = counters.maxCount();
+            if (freq > freqOfMostCommonMinute) {
+                freqOfMostCommonMinute = freq;
+                mostCommonMinute = counters.mostFrequentMinute();
+                guardWithMostCommonMinute = guardId;
             }
+        }
 
-            for (Integer minute : freq.keySet()) {
-                if (freq.get(minute) > freqOfMostCommonMinute) {
-                    freqOfMostCommonMinute = freq.get(minute);
-                    mostCommonMinute = minute;
-                    guardWithMostCommonMinute = guardId;
-                }
+        return guardWithMostCommonMinute * mostCommonMinute;
+    }
+
+    // Class holding one guard's shifts, each as a mask with bit m set if the guard was asleep at minute m of the
+    // midnight hour.
+    static class SleepTimeline {
+        long[] nights = new long[8];
+        int nightCount;
+
+        // Starts a new shift, during which the guard has not slept yet.
+        public void startNight() {
+            if (nightCount == nights.length)
+                nights = Arrays.copyOf(nights, nightCount * 2);
+            nights[nightCount++] = 0;
+        }
+
+        // Marks the guard asleep on the current shift from the sleep minute up to, but not including, the wake minute.
+        public void addNap(int sleepMinute, int wakeMinute) {
+            if (wakeMinute > sleepMinute)
+                nights[nightCount - 1] |= (-1L >>> (64 - (wakeMinute - sleepMinute))) << sleepMinute;
+        }
+
+        public int minutesAsleep() {
+            int sum = 0;
+            for (int i = 0; i < nightCount; i++) {
+                sum += Long.bitCount(nights[i]);
             }
+            return sum;
         }
 
-        return guardWithMostCommonMinute * mostCommonMinute;
+        // Returns how often the guard was asleep on each minute, over all of their shifts.
+        public MinuteCounters minuteCounters() {
+            MinuteCounters counters = new MinuteCounters();
+            for (int i = 0; i < nightCount; i++) {
+                counters.add(nights[i]);
+            }
+            return counters;
+        }
     }
 
-    static class Pair {
-        int sleepMinute;
-        int wakeMinute;
+    // Bit-sliced counters: one counter per minute, stored vertically so that bit m of planes[k] is bit k of the
+    // count for minute m. Adding a mask increments the counters of all 60 minutes at once, like a binary adder
+    // working on every minute in parallel, which takes a few word operations instead of a loop over the minutes.
+    static class MinuteCounters {
+        long[] planes = new long[0];
+
+        // Increments the counter of every minute whose bit is set in the mask.
+        public void add(long mask) {
+            long carry = mask;
+            for (int k = 0; carry != 0; k++) {
+                if (k == planes.length)
+                    planes = Arrays.copyOf(planes, k + 1);
+                long overflow = planes[k] & carry;
+                planes[k] ^= carry;
+                carry = overflow;
+            }
+        }
 
-        public Pair(int sleepMinute, int wakeMinute) {
-            this.sleepMinute = sleepMinute;
-            this.wakeMinute = wakeMinute;
+        // Returns a mask of the minutes with the highest count. Going from the most significant plane down, keep
+        // only the candidates with a 1 in that plane whenever any candidate has one.
+        private long maxMinutes() {
+            long candidates = -1L >>> 4;
+            for (int k = planes.length - 1; k >= 0; k--) {
+                long withBit = candidates & planes[k];
+                if (withBit != 0)
+                    candidates = withBit;
+            }
+            return candidates;
         }
 
-        public String toString() {
-            return "(" + this.sleepMinute + "," + this.wakeMinute + ")";
+        // Returns the count of the minute at the given position.
+        public int count(int minute) {
+            int count = 0;
+            for (int k = 0; k < planes.length; k++) {
+                count |= (int) ((planes[k] >>> minute) & 1) << k;
+            }
+            return count;
+        }
+
+        public int maxCount() {
+            return count(mostFrequentMinute());
+        }
+
+        // Returns the minute with the highest count, the earliest one if several minutes are tied.
+        public int mostFrequentMinute() {
+            return Long.numberOfTrailingZeros(maxMinutes());
         }
     }
 
     static class Record implements Comparable<Record> {
-        Date timestamp;
+        // The date and time packed as the decimal digits yyyyMMddHHmm, so that timestamps sort chronologically.
+        long timestamp;
+        int minute;
         int recordType;
         int guardId;
 
-        public Record(Date timestamp, int recordType) {
+        // The minute is kept alongside the timestamp so it does not have to be unpacked.
+        public Record(long timestamp, int minute, int recordType) {
             this.timestamp = timestamp;
+            this.minute = minute;
             this.recordType = recordType;
             this.guardId = 0;
         }
@@ -220,17 +256,22 @@ public class Day4_Repose_Record {
         }
 
         public String toString() {
-            return "(" + this.timestamp.getYear() + "-" +
-                    (this.timestamp.getMonth()+1) + "-" +
-                    this.timestamp.getDate() + " " +
-                    this.timestamp.getHours() + ":" +
-                    this.timestamp.getMinutes() + "," +
+            return "(" + this.timestamp / 100_000_000 + "-" +
+                    this.timestamp / 1_000_000 % 100 + "-" +
+                    this.timestamp / 10_000 % 100 + " " +
+                    this.timestamp / 100 % 100 + ":" +
+                    this.timestamp % 100 + "," +
                     this.recordType + "," +
                     this.guardId + ")";
         }
 
         public int compareTo(Record r) {
-            return this.timestamp.compareTo(r.timestamp);
+            return Long.compare(this.timestamp, r.timestamp);
+        }
+
+        // Packs a date and time into a timestamp, with the month and day counted from 1.
+        static long timestamp(int year, int month, int day, int hour, int minute) {
+            return year * 100_000_000L + month * 1_000_000L + day * 10_000L + hour * 100L + minute;
         }
     }
 }
\ No newline at end of file
@@ -2,27 +2,32 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
-public class Day5_Alchemical_Reduction {
+public class Day5_Alchemical_Reduction implements Puzzle<String> {
     public static void main(String[] args) {
-        File file = new File("./inputs/day5/day5.txt");
+        PuzzleRunner.run(new Day5_Alchemical_Reduction());
+    }
 
-        try {
-            Scanner sc = new Scanner(file);
+    public String inputPath() {
+        return "./inputs/day5/day5.txt";
+    }
 
+    // Reads the polymer, which is the last line of the file.
+    public String parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
             String polymer = "";
-            while (sc.hasNextLine()) {
-                polymer = sc.nextLine();
+            while (reader.nextLine()) {
+                polymer = reader.lineString();
             }
+            return polymer;
+        }
+    }
 
-            int part1 = part1(polymer);
-            System.out.println("Part 1 is: " + part1);
-
-            int part2 = part2(polymer);
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(String polymer) {
+        return part1(polymer);
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(String polymer) {
+        return part2(polymer);
     }
 
     // Returns true if the given characters react with each other (if they are the lowercase and uppercase version
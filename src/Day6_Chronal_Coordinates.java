@@ -4,24 +4,42 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
 
-public class Day6_Chronal_Coordinates {
-    public static void main(String[] args) {
-        File file = new File("./inputs/day6/day6.txt");
+public class Day6_Chronal_Coordinates implements Puzzle<Day6_Chronal_Coordinates.Coordinates> {
+    // Locations whose total distance to all points is less than this are in the safe region of part 2.
+    private static final int SAFE_DISTANCE_SUM = 10000;
 
-        try {
-            Scanner sc = new Scanner(file);
+    public static void main(String[] args) throws IOException {
+        // Incremental mode: make random changes of one site to the input's sites, printing both answers after each
+        // change, as kept up to date by IncrementalAreas and as recomputed from scratch.
+        // Usage: incremental <changes>
+        if (args.length > 1 && args[0].equals("incremental")) {
+            runIncremental(Integer.parseInt(args[1]));
+            return;
+        }
+
+        PuzzleRunner.run(new Day6_Chronal_Coordinates());
+    }
+
+    public String inputPath() {
+        return "./inputs/day6/day6.txt";
+    }
+
+    // Reads one "x, y" coordinate per line, along with the bounding box of all the coordinates.
+    public Coordinates parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
             List<Point> points = new ArrayList<>();
             int minX = Integer.MAX_VALUE;
             int minY = Integer.MAX_VALUE;
             int maxX = 0;
             int maxY = 0;
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] tokens = line.split(",");
-                int x = Integer.parseInt(tokens[0].trim());
-                int y = Integer.parseInt(tokens[1].trim());
+            while (reader.nextLine()) {
+                int x = reader.nextInt();
+                int y = reader.nextInt();
                 points.add(new Point(x, y));
 
                 minX = Math.min(minX, x);
@@ -35,15 +53,16 @@ public class Day6_Chronal_Coordinates {
             Pair xBounds = new Pair(minX, maxX);
             Pair yBounds = new Pair(minY, maxY);
 
-            int part1 = part1(points, xBounds, yBounds);
-            System.out.println("Part 1 is: " + part1);
+            return new Coordinates(points, xBounds, yBounds);
+        }
+    }
 
-            int part2 = part2(points, xBounds, yBounds);
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(Coordinates coordinates) {
+        return part1Parallel(coordinates.points, coordinates.xBounds, coordinates.yBounds);
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(Coordinates coordinates) {
+        return part2Parallel(coordinates.points, coordinates.xBounds, coordinates.yBounds);
     }
 
     // Returns the Manhattan distance between the two given points.
@@ -53,7 +72,7 @@ public class Day6_Chronal_Coordinates {
 
     // Returns the unique point in our list of points that is the closest (based off of Manhattan distance)
     // to the given point p. If more than one point is equally close, returns null.
-    private static Point findClosestPoint(List<Point> points, Point p) {
+    static Point findClosestPoint(List<Point> points, Point p) {
         // Maps a distance to a list of points with that distance
         Map<Integer, List<Point>> freq = new HashMap<>();
 
@@ -88,7 +107,7 @@ public class Day6_Chronal_Coordinates {
     // points along the border of the "bounding box" and remove any points from the dictionary. The reason for this
     // is that points along the border can be treated as infinite areas, and we don't want to count those.
     // Finally, determine the largest area of the points in our dictionary remaining.
-    private static int part1(List<Point> points, Pair xBounds, Pair yBounds) {
+    static int part1(List<Point> points, Pair xBounds, Pair yBounds) {
         Map<Point, Integer> areas = new HashMap<>();
 
         // For every coordinate in our "bounding box" (bounded by min/max x and min/max y values),
@@ -136,6 +155,45 @@ public class Day6_Chronal_Coordinates {
         return maxArea;
     }
 
+    // Part 1 (index): Same as part1, with each closest point found through a SiteIndex instead of a linear scan,
+    // and the areas counted in an array indexed by site number.
+    static int part1WithIndex(List<Point> points, Pair xBounds, Pair yBounds) {
+        SiteIndex index = new SiteIndex(points);
+        int[] areas = new int[points.size()];
+
+        for (int x = xBounds.min; x <= xBounds.max; x++) {
+            for (int y = yBounds.min; y <= yBounds.max; y++) {
+                int closest = index.nearest(x, y);
+                if (closest >= 0)
+                    areas[closest]++;
+            }
+        }
+
+        // Exclude the sites closest to some point on the border, as their areas are infinite.
+        boolean[] infinite = new boolean[points.size()];
+        for (int x = xBounds.min; x <= xBounds.max; x++) {
+            markSite(infinite, index.nearest(x, yBounds.min));
+            markSite(infinite, index.nearest(x, yBounds.max));
+        }
+        for (int y = yBounds.min; y <= yBounds.max; y++) {
+            markSite(infinite, index.nearest(xBounds.min, y));
+            markSite(infinite, index.nearest(xBounds.max, y));
+        }
+
+        int maxArea = 0;
+        for (int site = 0; site < points.size(); site++) {
+            if (!infinite[site])
+                maxArea = Math.max(maxArea, areas[site]);
+        }
+
+        return maxArea;
+    }
+
+    private static void markSite(boolean[] marks, int site) {
+        if (site >= 0)
+            marks[site] = true;
+    }
+
     // Given a list of points and a point, determines the sum of all the Manhattan distances between the point
     // and each point in the list.
     private static int findManhattanDistanceSum(List<Point> points, Point p) {
@@ -152,13 +210,13 @@ public class Day6_Chronal_Coordinates {
     // total distance to all given points of less than 10,000. Iterate through all points in the "grid",
     // and determine the sum of the Manhattan distances from this point to the list of given points.
     // If that sum is less than 10,000, accumulate a variable which keeps track of the size of this region.
-    private static int part2(List<Point> points, Pair xBounds, Pair yBounds) {
+    static int part2(List<Point> points, Pair xBounds, Pair yBounds) {
         int regionSize = 0;
         for (int x = xBounds.min; x <= xBounds.max; x++) {
             for (int y = yBounds.min; y <= yBounds.max; y++) {
                 int sum = findManhattanDistanceSum(points, new Point(x,y));
 
-                if (sum < 10000)
+                if (sum < SAFE_DISTANCE_SUM)
                     regionSize++;
             }
         }
@@ -166,6 +224,730 @@ public class Day6_Chronal_Coordinates {
         return regionSize;
     }
 
+    // Part 1 (parallel): Same as part1WithIndex, with the rows of the bounding box split into blocks evaluated on
+    // the common fork-join pool. Blocks count areas and mark the sites closest to the border on their own, and the
+    // sites with infinite areas are only excluded once the blocks are merged.
+    static int part1Parallel(List<Point> points, Pair xBounds, Pair yBounds) {
+        GridTotals totals = evaluateGrid(points, xBounds, yBounds, true, false);
+
+        int maxArea = 0;
+        for (int site = 0; site < points.size(); site++) {
+            if (!totals.infinite[site])
+                maxArea = Math.max(maxArea, totals.areas[site]);
+        }
+
+        return maxArea;
+    }
+
+    // Part 2 (parallel): Same as part2, with the rows of the bounding box split into blocks evaluated on the common
+    // fork-join pool, each counting its own locations in the safe region.
+    static int part2Parallel(List<Point> points, Pair xBounds, Pair yBounds) {
+        return evaluateGrid(points, xBounds, yBounds, false, true).safeRegionSize;
+    }
+
+    // Evaluates every location of the bounding box on the common fork-join pool, finding the closest sites when
+    // findAreas is set and the total distances when findSafeRegion is set. Each location is evaluated exactly as
+    // in the sequential parts, and the blocks' counts are only added up, so the totals are the same as theirs.
+    static GridTotals evaluateGrid(List<Point> points, Pair xBounds, Pair yBounds, boolean findAreas, boolean findSafeRegion) {
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            xs[i] = points.get(i).x;
+            ys[i] = points.get(i).y;
+        }
+
+        SiteIndex index = findAreas ? new SiteIndex(points) : null;
+        return ForkJoinPool.commonPool().invoke(new GridBlockTask(index, xs, ys, xBounds, yBounds,
+                findSafeRegion, yBounds.min, yBounds.max + 1));
+    }
+
+    // Class holding the counts for a block of rows: the area of each site, whether each site is closest to some
+    // location on the border of the bounding box, and how many locations are in the safe region.
+    static class GridTotals {
+        int[] areas;
+        boolean[] infinite;
+        int safeRegionSize;
+
+        public GridTotals(int sites) {
+            this.areas = new int[sites];
+            this.infinite = new boolean[sites];
+        }
+
+        void merge(GridTotals other) {
+            for (int site = 0; site < areas.length; site++) {
+                areas[site] += other.areas[site];
+                infinite[site] |= other.infinite[site];
+            }
+            safeRegionSize += other.safeRegionSize;
+        }
+    }
+
+    // Evaluates the rows from minY (inclusive) to maxY (exclusive) of the bounding box, splitting them in half
+    // while the block holds more than MIN_LOCATIONS_PER_TASK locations.
+    static class GridBlockTask extends RecursiveTask<GridTotals> {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_LOCATIONS_PER_TASK = 1 << 14;
+
+        SiteIndex index;
+        int[] xs;
+        int[] ys;
+        Pair xBounds;
+        Pair yBounds;
+        boolean findSafeRegion;
+        int minY;
+        int maxY;
+
+        public GridBlockTask(SiteIndex index, int[] xs, int[] ys, Pair xBounds, Pair yBounds, boolean findSafeRegion, int minY, int maxY) {
+            this.index = index;
+            this.xs = xs;
+            this.ys = ys;
+            this.xBounds = xBounds;
+            this.yBounds = yBounds;
+            this.findSafeRegion = findSafeRegion;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        @Override
+        protected GridTotals compute() {
+            int rows = maxY - minY;
+            long columns = (long) xBounds.max - xBounds.min + 1;
+            if (rows > 1 && rows * columns > MIN_LOCATIONS_PER_TASK) {
+                int midY = minY + rows / 2;
+                GridBlockTask top = new GridBlockTask(index, xs, ys, xBounds, yBounds, findSafeRegion, minY, midY);
+                GridBlockTask bottom = new GridBlockTask(index, xs, ys, xBounds, yBounds, findSafeRegion, midY, maxY);
+                bottom.fork();
+                GridTotals totals = top.compute();
+                totals.merge(bottom.join());
+                return totals;
+            }
+
+            GridTotals totals = new GridTotals(xs.length);
+            for (int y = minY; y < maxY; y++) {
+                boolean borderRow = y == yBounds.min || y == yBounds.max;
+                for (int x = xBounds.min; x <= xBounds.max; x++) {
+                    if (index != null) {
+                        int closest = index.nearest(x, y);
+                        if (closest >= 0) {
+                            totals.areas[closest]++;
+                            if (borderRow || x == xBounds.min || x == xBounds.max)
+                                totals.infinite[closest] = true;
+                        }
+                    }
+
+                    if (findSafeRegion) {
+                        int sum = 0;
+                        for (int i = 0; i < xs.length; i++) {
+                            sum += Math.abs(xs[i] - x) + Math.abs(ys[i] - y);
+                        }
+                        if (sum < SAFE_DISTANCE_SUM)
+                            totals.safeRegionSize++;
+                    }
+                }
+            }
+            return totals;
+        }
+    }
+
+    // Applies random changes to the input's sites: each adds a random site inside a slightly larger box, or removes
+    // a random site. After each change, prints the time the IncrementalAreas update took and both answers, along
+    // with the time and answers of part1WithIndex and part2 recomputed from scratch.
+    private static void runIncremental(int changes) throws IOException {
+        Coordinates coordinates = PuzzleRunner.parseInput(new Day6_Chronal_Coordinates());
+        IncrementalAreas areas = new IncrementalAreas(SAFE_DISTANCE_SUM);
+        List<Integer> ids = new ArrayList<>();
+        for (Point point : coordinates.points) {
+            ids.add(areas.addSite(point.x, point.y));
+        }
+
+        Random random = new Random(6);
+        for (int change = 0; change < changes; change++) {
+            long start = System.nanoTime();
+            String description;
+            if (ids.size() > 1 && random.nextBoolean()) {
+                int id = ids.remove(random.nextInt(ids.size()));
+                description = "remove " + areas.site(id).x + ", " + areas.site(id).y;
+                areas.removeSite(id);
+            } else {
+                int x = coordinates.xBounds.min - 20 + random.nextInt(coordinates.xBounds.max - coordinates.xBounds.min + 41);
+                int y = coordinates.yBounds.min - 20 + random.nextInt(coordinates.yBounds.max - coordinates.yBounds.min + 41);
+                description = "add " + x + ", " + y;
+                ids.add(areas.addSite(x, y));
+            }
+            long incremental = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Coordinates current = areas.coordinates();
+            int part1 = part1WithIndex(current.points, current.xBounds, current.yBounds);
+            int part2 = part2(current.points, current.xBounds, current.yBounds);
+            long full = System.nanoTime() - start;
+
+            System.out.printf("%-20s incremental %d, %d in %.2f ms; recomputed %d, %d in %.2f ms%n", description,
+                    areas.largestFiniteArea(), areas.safeRegionSize(), incremental / 1e6, part1, part2, full / 1e6);
+        }
+    }
+
+    // Keeps the answers to both parts up to date while sites are added and removed one at a time. For every
+    // location in the sites' bounding box, it keeps the distance to the closest site and which site that is (or
+    // SiteIndex.TIE). From these it maintains the area of each site, and how many of its locations are on the border
+    // of the box (any makes the area infinite).
+    //
+    // The locations a site is at least as close to as any other site form a region around it: stepping from such a
+    // location towards the site brings it one closer to the site and at most one closer to any other. So adding a
+    // site only visits its region, filled outwards from the site, relabelling the locations it is closer to and
+    // marking the ones it ties for. Removing a site fills the region it had the same way, and looks up the closest
+    // site again for those locations only, in a SiteIndex that is kept up to date alongside.
+    //
+    // The total distance from a location to all sites splits into the total over x and the total over y, which are
+    // kept per column and per row of the box. With the row totals sorted, the safe locations of each column are
+    // counted with a binary search, so a change costs time in the width and height of the box rather than its area.
+    // When the bounding box changes, the locations in both the old and new box keep their closest sites, as these do
+    // not depend on the box, and only the new ones are looked up.
+    static class IncrementalAreas {
+        int safeDistanceSum;
+
+        // Sites by id, with null for removed sites. Ids are never reused, and are the sites' numbers in the index.
+        List<Point> sites = new ArrayList<>();
+        int liveSites;
+        SiteIndex index = new SiteIndex(new ArrayList<>());
+
+        int minX;
+        int minY;
+        int maxX;
+        int maxY;
+        int width;
+        int height;
+
+        // Per location, row after row: distance to the closest site and closest site (or TIE).
+        int[] closestDistance = new int[0];
+        int[] closestSite = new int[0];
+
+        // Per column and per row of the box: total distance to all sites along x and along y.
+        int[] columnSums = new int[0];
+        int[] rowSums = new int[0];
+
+        // For filling regions: the fill each location was last reached by, and the locations reached so far.
+        int[] reached = new int[0];
+        int fill;
+        int[] region = new int[0];
+
+        // Per site id: locations closest to it, and how many of those are on the border of the box.
+        int[] area = new int[0];
+        int[] borderArea = new int[0];
+        int safeRegionSize;
+
+        public IncrementalAreas(int safeDistanceSum) {
+            this.safeDistanceSum = safeDistanceSum;
+        }
+
+        public Point site(int id) {
+            return sites.get(id);
+        }
+
+        // Returns the live sites and their bounding box, as parse would for an input listing them.
+        public Coordinates coordinates() {
+            List<Point> points = new ArrayList<>();
+            for (Point site : sites) {
+                if (site != null)
+                    points.add(site);
+            }
+            return new Coordinates(points, new Pair(minX, maxX), new Pair(minY, maxY));
+        }
+
+        // Part 1 for the current sites: the largest area not touching the border of the box.
+        public int largestFiniteArea() {
+            int maxArea = 0;
+            for (int id = 0; id < sites.size(); id++) {
+                if (sites.get(id) != null && borderArea[id] == 0)
+                    maxArea = Math.max(maxArea, area[id]);
+            }
+            return maxArea;
+        }
+
+        // Part 2 for the current sites: the number of locations in the box whose total distance is under the limit.
+        public int safeRegionSize() {
+            return safeRegionSize;
+        }
+
+        // Adds a site and returns its id.
+        public int addSite(int x, int y) {
+            int id = sites.size();
+            sites.add(new Point(x, y));
+            if (area.length < sites.size()) {
+                area = Arrays.copyOf(area, Math.max(16, sites.size() * 2));
+                borderArea = Arrays.copyOf(borderArea, area.length);
+            }
+
+            // Grow the box with the other sites' values first, then apply the new site.
+            if (liveSites == 0) {
+                resize(x, x, y, y, id);
+            } else if (x < minX || x > maxX || y < minY || y > maxY) {
+                resize(Math.min(minX, x), Math.max(maxX, x), Math.min(minY, y), Math.max(maxY, y), id);
+            }
+            liveSites++;
+            index.add(id, x, y);
+
+            int cells = fillRegion(x, y, true);
+            for (int i = 0; i < cells; i++) {
+                int cell = region[i];
+                int distance = Math.abs(minX + cell % width - x) + Math.abs(minY + cell / width - y);
+                relabel(cell, distance < closestDistance[cell] ? id : SiteIndex.TIE);
+                closestDistance[cell] = distance;
+            }
+
+            addSums(x, y, 1);
+            return id;
+        }
+
+        // Removes the site with the given id.
+        public void removeSite(int id) {
+            Point removed = sites.get(id);
+            if (removed == null)
+                throw new IllegalArgumentException("No site with id " + id);
+
+            sites.set(id, null);
+            liveSites--;
+            index.remove(id);
+            if (liveSites == 0) {
+                resize(0, -1, 0, -1, -1);
+                return;
+            }
+
+            int cells = fillRegion(removed.x, removed.y, false);
+            for (int i = 0; i < cells; i++) {
+                int cell = region[i];
+                long nearest = index.search(minX + cell % width, minY + cell / width);
+                closestDistance[cell] = (int) (nearest >>> 32);
+                relabel(cell, (int) nearest);
+            }
+
+            // Shrink the box if the removed site was on its edge, or else just take its distances off the totals.
+            if (removed.x == minX || removed.x == maxX || removed.y == minY || removed.y == maxY) {
+                int newMinX = Integer.MAX_VALUE;
+                int newMaxX = Integer.MIN_VALUE;
+                int newMinY = Integer.MAX_VALUE;
+                int newMaxY = Integer.MIN_VALUE;
+                for (Point site : sites) {
+                    if (site == null)
+                        continue;
+                    newMinX = Math.min(newMinX, site.x);
+                    newMaxX = Math.max(newMaxX, site.x);
+                    newMinY = Math.min(newMinY, site.y);
+                    newMaxY = Math.max(newMaxY, site.y);
+                }
+                if (newMinX != minX || newMaxX != maxX || newMinY != minY || newMaxY != maxY) {
+                    resize(newMinX, newMaxX, newMinY, newMaxY, -1);
+                    return;
+                }
+            }
+            addSums(removed.x, removed.y, -1);
+        }
+
+        // Finds the locations the site at (x, y) is at least as close to as the closest site known for them, when
+        // adding it, or exactly as close to, when it is being removed and so was counted among the closest sites.
+        // Puts them in region, and returns how many there are.
+        private int fillRegion(int x, int y, boolean adding) {
+            fill++;
+            int start = (y - minY) * width + (x - minX);
+            reached[start] = fill;
+            region[0] = start;
+            int cells = 1;
+
+            for (int i = 0; i < cells; i++) {
+                int cell = region[i];
+                int column = cell % width;
+                int row = cell / width;
+                for (int direction = 0; direction < 4; direction++) {
+                    int nextColumn = column + (direction == 0 ? 1 : direction == 1 ? -1 : 0);
+                    int nextRow = row + (direction == 2 ? 1 : direction == 3 ? -1 : 0);
+                    if (nextColumn < 0 || nextColumn >= width || nextRow < 0 || nextRow >= height)
+                        continue;
+
+                    int next = nextRow * width + nextColumn;
+                    if (reached[next] == fill)
+                        continue;
+                    int distance = Math.abs(minX + nextColumn - x) + Math.abs(minY + nextRow - y);
+                    if (adding ? distance <= closestDistance[next] : distance == closestDistance[next]) {
+                        reached[next] = fill;
+                        region[cells++] = next;
+                    }
+                }
+            }
+            return cells;
+        }
+
+        // Adds the distances from the site at (x, y) to the column and row totals, or subtracts them for a sign of
+        // -1, then counts the safe region again.
+        private void addSums(int x, int y, int sign) {
+            for (int column = 0; column < width; column++) {
+                columnSums[column] += sign * Math.abs(minX + column - x);
+            }
+            for (int row = 0; row < height; row++) {
+                rowSums[row] += sign * Math.abs(minY + row - y);
+            }
+            countSafeRegion();
+        }
+
+        // Counts the locations whose column total and row total add up to less than the limit.
+        private void countSafeRegion() {
+            int[] sortedRowSums = rowSums.clone();
+            Arrays.sort(sortedRowSums);
+            safeRegionSize = 0;
+            for (int columnSum : columnSums) {
+                // The number of row totals below safeDistanceSum - columnSum.
+                int low = 0;
+                int high = sortedRowSums.length;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (sortedRowSums[middle] < safeDistanceSum - columnSum)
+                        low = middle + 1;
+                    else
+                        high = middle;
+                }
+                safeRegionSize += low;
+            }
+        }
+
+        // Changes the closest site of the location, keeping the areas of the old and new site up to date.
+        private void relabel(int cell, int site) {
+            int column = cell % width;
+            int row = cell / width;
+            boolean border = row == 0 || row == height - 1 || column == 0 || column == width - 1;
+            int old = closestSite[cell];
+            if (old != SiteIndex.TIE) {
+                area[old]--;
+                if (border)
+                    borderArea[old]--;
+            }
+            if (site != SiteIndex.TIE) {
+                area[site]++;
+                if (border)
+                    borderArea[site]++;
+            }
+            closestSite[cell] = site;
+        }
+
+        // Moves to a new bounding box, looking up the closest sites of the locations that were not in the old one
+        // and the column and row totals from the live sites other than the given one (the site being added, which
+        // is applied afterwards, or -1), then recounting the areas, as which locations are on the border may have
+        // changed.
+        private void resize(int newMinX, int newMaxX, int newMinY, int newMaxY, int excludedId) {
+            int newWidth = Math.max(0, newMaxX - newMinX + 1);
+            int newHeight = Math.max(0, newMaxY - newMinY + 1);
+            int[] newDistance = new int[Math.multiplyExact(newWidth, newHeight)];
+            int[] newSite = new int[newDistance.length];
+
+            for (int row = 0; row < newHeight; row++) {
+                for (int column = 0; column < newWidth; column++) {
+                    int x = newMinX + column;
+                    int y = newMinY + row;
+                    int cell = row * newWidth + column;
+                    int oldColumn = x - minX;
+                    int oldRow = y - minY;
+
+                    if (oldColumn >= 0 && oldColumn < width && oldRow >= 0 && oldRow < height) {
+                        int oldCell = oldRow * width + oldColumn;
+                        newDistance[cell] = closestDistance[oldCell];
+                        newSite[cell] = closestSite[oldCell];
+                    } else {
+                        long nearest = index.search(x, y);
+                        newDistance[cell] = (int) (nearest >>> 32);
+                        newSite[cell] = (int) nearest;
+                    }
+                }
+            }
+
+            minX = newMinX;
+            maxX = newMaxX;
+            minY = newMinY;
+            maxY = newMaxY;
+            width = newWidth;
+            height = newHeight;
+            closestDistance = newDistance;
+            closestSite = newSite;
+            reached = new int[newDistance.length];
+            region = new int[newDistance.length];
+
+            columnSums = new int[width];
+            rowSums = new int[height];
+            for (int id = 0; id < sites.size(); id++) {
+                Point site = sites.get(id);
+                if (site == null || id == excludedId)
+                    continue;
+                for (int column = 0; column < width; column++) {
+                    columnSums[column] += Math.abs(minX + column - site.x);
+                }
+                for (int row = 0; row < height; row++) {
+                    rowSums[row] += Math.abs(minY + row - site.y);
+                }
+            }
+            countSafeRegion();
+
+            Arrays.fill(area, 0);
+            Arrays.fill(borderArea, 0);
+            for (int cell = 0; cell < closestSite.length; cell++) {
+                int site = closestSite[cell];
+                closestSite[cell] = SiteIndex.TIE;
+                relabel(cell, site);
+            }
+        }
+    }
+
+    // Spatial index over the sites (the given points) that finds the site closest to any point by Manhattan distance,
+    // and tells when several sites are equally close.
+    //
+    // Rotating the plane by 45 degrees, with u = x + y and v = x - y, turns the Manhattan distance into the
+    // Chebyshev distance max(|du|, |dv|). In rotated coordinates the sites are bucketed into square cells of a
+    // uniform grid, about two sites per cell. A query looks at the cells in rings of growing Chebyshev distance
+    // around its own cell. A site r rings away is at least (r - 1) * cellSize + 1 away, so the search stops at the
+    // first ring that cannot hold a site as close as the closest one found, which also finds every tie. For sites
+    // spread like the puzzle's, a query looks at a handful of cells instead of every site.
+    //
+    // Sites can also be added and removed. A removed site is swapped with the last site of its cell, and an added
+    // site takes a free slot of its cell. When its cell has no free slot, or it lies outside the grid, the index is
+    // rebuilt over the live sites, this time with a margin around the grid and room for half as many sites again
+    // in every cell, so rebuilds are rare.
+    static class SiteIndex {
+        // Returned by nearest when several sites are equally close, or when there are no sites.
+        static final int TIE = -1;
+
+        int liveSites;
+        int cellSize;
+        int uMin;
+        int vMin;
+        int columns;
+        int rows;
+
+        // The sites of each cell, all in one array in cell order: cell c has room for the sites at
+        // cellSites[cellStart[c]] to cellSites[cellStart[c + 1] - 1], and holds them up to cellSites[cellEnd[c] - 1].
+        // Their rotated coordinates are at the same positions of cellU and cellV.
+        int[] cellStart;
+        int[] cellEnd;
+        int[] cellSites;
+        int[] cellU;
+        int[] cellV;
+
+        // Per site number: its coordinates, and its position in cellSites, or -1 if it is not in the index.
+        int[] siteX;
+        int[] siteY;
+        int[] slot;
+
+        // Indexes the given sites, numbered by their position in the list. Null entries are left out, so the
+        // numbers of sites that are gone can stay unused.
+        public SiteIndex(List<Point> sites) {
+            siteX = new int[sites.size()];
+            siteY = new int[sites.size()];
+            slot = new int[sites.size()];
+            for (int i = 0; i < sites.size(); i++) {
+                Point site = sites.get(i);
+                slot[i] = site == null ? -1 : 0;
+                if (site != null) {
+                    siteX[i] = site.x;
+                    siteY[i] = site.y;
+                    liveSites++;
+                }
+            }
+            build(false);
+        }
+
+        // Lays out the grid over the live sites and fills in the cells, with room to grow if requested.
+        private void build(boolean withRoom) {
+            uMin = Integer.MAX_VALUE;
+            vMin = Integer.MAX_VALUE;
+            int uMax = Integer.MIN_VALUE;
+            int vMax = Integer.MIN_VALUE;
+            for (int i = 0; i < slot.length; i++) {
+                if (slot[i] < 0)
+                    continue;
+                uMin = Math.min(uMin, siteX[i] + siteY[i]);
+                uMax = Math.max(uMax, siteX[i] + siteY[i]);
+                vMin = Math.min(vMin, siteX[i] - siteY[i]);
+                vMax = Math.max(vMax, siteX[i] - siteY[i]);
+            }
+            if (liveSites == 0) {
+                uMin = uMax = vMin = vMax = 0;
+            }
+            if (withRoom) {
+                int uMargin = (uMax - uMin) / 4 + 1;
+                int vMargin = (vMax - vMin) / 4 + 1;
+                uMin -= uMargin;
+                uMax += uMargin;
+                vMin -= vMargin;
+                vMax += vMargin;
+            }
+
+            // The sites fill about half of the rotated bounding box, a diamond, so this gives about two per cell.
+            long area = (long) (uMax - uMin + 1) * (vMax - vMin + 1);
+            cellSize = (int) Math.max(1, Math.ceil(Math.sqrt((double) area / Math.max(1, liveSites))));
+            columns = (uMax - uMin) / cellSize + 1;
+            rows = (vMax - vMin) / cellSize + 1;
+
+            int cells = columns * rows;
+            cellStart = new int[cells + 1];
+            for (int i = 0; i < slot.length; i++) {
+                if (slot[i] >= 0)
+                    cellStart[cell(siteX[i] + siteY[i], siteX[i] - siteY[i]) + 1]++;
+            }
+            for (int c = 0; c < cells; c++) {
+                int capacity = cellStart[c + 1];
+                if (withRoom)
+                    capacity += capacity / 2 + 1;
+                cellStart[c + 1] = cellStart[c] + capacity;
+            }
+
+            cellEnd = Arrays.copyOf(cellStart, cells);
+            cellSites = new int[cellStart[cells]];
+            cellU = new int[cellSites.length];
+            cellV = new int[cellSites.length];
+            for (int i = 0; i < slot.length; i++) {
+                if (slot[i] >= 0)
+                    place(i, cell(siteX[i] + siteY[i], siteX[i] - siteY[i]));
+            }
+        }
+
+        // Puts the site in the next free slot of the cell.
+        private void place(int site, int c) {
+            int k = cellEnd[c]++;
+            cellSites[k] = site;
+            cellU[k] = siteX[site] + siteY[site];
+            cellV[k] = siteX[site] - siteY[site];
+            slot[site] = k;
+        }
+
+        private int cell(int u, int v) {
+            return (v - vMin) / cellSize * columns + (u - uMin) / cellSize;
+        }
+
+        // Adds a site with the given number, which must not be in the index.
+        public void add(int site, int x, int y) {
+            if (site >= slot.length) {
+                int length = Math.max(site + 1, slot.length * 2);
+                siteX = Arrays.copyOf(siteX, length);
+                siteY = Arrays.copyOf(siteY, length);
+                int oldLength = slot.length;
+                slot = Arrays.copyOf(slot, length);
+                Arrays.fill(slot, oldLength, length, -1);
+            }
+            if (slot[site] >= 0)
+                throw new IllegalArgumentException("Site " + site + " is already in the index");
+
+            siteX[site] = x;
+            siteY[site] = y;
+            liveSites++;
+
+            int u = x + y;
+            int v = x - y;
+            if (u >= uMin && v >= vMin && (u - uMin) / cellSize < columns && (v - vMin) / cellSize < rows) {
+                int c = cell(u, v);
+                if (cellEnd[c] < cellStart[c + 1]) {
+                    place(site, c);
+                    return;
+                }
+            }
+
+            slot[site] = 0;
+            build(true);
+        }
+
+        // Removes the site with the given number, which must be in the index.
+        public void remove(int site) {
+            int k = site < slot.length ? slot[site] : -1;
+            if (k < 0)
+                throw new IllegalArgumentException("Site " + site + " is not in the index");
+
+            int last = --cellEnd[cell(cellU[k], cellV[k])];
+            cellSites[k] = cellSites[last];
+            cellU[k] = cellU[last];
+            cellV[k] = cellV[last];
+            slot[cellSites[k]] = k;
+            slot[site] = -1;
+            liveSites--;
+        }
+
+        // Returns the number of the site closest to (x, y), or TIE if several are.
+        public int nearest(int x, int y) {
+            return (int) search(x, y);
+        }
+
+        // Returns the distance from (x, y) to the closest site, or Integer.MAX_VALUE if there are no sites.
+        public int nearestDistance(int x, int y) {
+            return (int) (search(x, y) >>> 32);
+        }
+
+        // Returns the distance to the closest site in the high 32 bits and what nearest returns in the low 32 bits.
+        long search(int x, int y) {
+            int u = x + y;
+            int v = x - y;
+            int column = Math.floorDiv(u - uMin, cellSize);
+            int row = Math.floorDiv(v - vMin, cellSize);
+
+            // Rings closer than the grid hold no cells, and rings past its farthest corner hold none either.
+            int firstRing = Math.max(distanceToRange(column, columns), distanceToRange(row, rows));
+            int lastRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+
+            int best = Integer.MAX_VALUE;
+            int bestSite = TIE;
+            boolean tied = false;
+
+            for (int r = firstRing; r <= lastRing; r++) {
+                if (r >= 1 && (long) (r - 1) * cellSize + 1 > best)
+                    break;
+
+                int top = row - r;
+                int bottom = row + r;
+                for (int i = Math.max(0, column - r); i <= Math.min(columns - 1, column + r); i++) {
+                    // Top and bottom sides of the ring, then the left and right sides between them.
+                    boolean side = i == column - r || i == column + r;
+                    int fromRow = side ? Math.max(0, top) : top;
+                    int toRow = side ? Math.min(rows - 1, bottom) : bottom;
+                    for (int j = fromRow; j <= toRow; j += side ? 1 : bottom - top) {
+                        if (j < 0 || j >= rows)
+                            continue;
+
+                        int c = j * columns + i;
+                        for (int k = cellStart[c]; k < cellEnd[c]; k++) {
+                            int distance = Math.max(Math.abs(cellU[k] - u), Math.abs(cellV[k] - v));
+                            if (distance < best) {
+                                best = distance;
+                                bestSite = cellSites[k];
+                                tied = false;
+                            } else if (distance == best) {
+                                tied = true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            return ((long) best << 32) | ((tied ? TIE : bestSite) & 0xFFFFFFFFL);
+        }
+
+        // Answers a batch of queries in parallel: the result at i is nearest(xs[i], ys[i]).
+        public int[] nearest(int[] xs, int[] ys) {
+            int[] result = new int[xs.length];
+            IntStream.range(0, xs.length).parallel().forEach(i -> result[i] = nearest(xs[i], ys[i]));
+            return result;
+        }
+
+        // Returns how many cells lie between the index and the range [0, size).
+        private static int distanceToRange(int index, int size) {
+            return index < 0 ? -index : Math.max(0, index - (size - 1));
+        }
+    }
+
+    // Class to bundle the given points with their "bounding box".
+    static class Coordinates {
+        List<Point> points;
+        Pair xBounds;
+        Pair yBounds;
+
+        public Coordinates(List<Point> points, Pair xBounds, Pair yBounds) {
+            this.points = points;
+            this.xBounds = xBounds;
+            this.yBounds = yBounds;
+        }
+    }
+
     // Class to represent a pair of min and max bounds.
     static class Pair {
         int min;
@@ -2,51 +2,88 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Day7_Sum_of_its_Parts implements Puzzle<Day7_Sum_of_its_Parts.StepGraph> {
+    public static void main(String[] args) throws Exception {
+        // Execute mode: runs the input's steps for real on a pool of workers, each step sleeping for its part 2
+        // duration at the given milliseconds per second, and compares the makespan with part 2's prediction.
+        // Usage: execute <workers> <millisPerSecond>
+        if (args.length > 2 && args[0].equals("execute")) {
+            runExecutor(Integer.parseInt(args[1]), Double.parseDouble(args[2]));
+            return;
+        }
 
-public class Day7_Sum_of_its_Parts {
-    public static void main(String[] args) {
-        File file = new File("./inputs/day7/day7.txt");
+        // Dynamic mode: keeps a topological order of the input's steps while random dependencies are added and
+        // removed, rejecting the ones that would create a cycle.
+        // Usage: dynamic <changes>
+        if (args.length > 1 && args[0].equals("dynamic")) {
+            runDynamicOrder(Integer.parseInt(args[1]));
+            return;
+        }
 
-        try {
-            Scanner sc = new Scanner(file);
+        PuzzleRunner.run(new Day7_Sum_of_its_Parts());
+    }
 
-            // Adjacency list representation of the graph formed by the steps
-            Map<String, List<String>> adjacencyList = new HashMap<>();
+    public String inputPath() {
+        return "./inputs/day7/day7.txt";
+    }
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] tokens = line.split(" ");
-                String step1 = tokens[1];
-                String step2 = tokens[7];
+    // Reads one "Step X must be finished before step Y can begin." dependency per line
+    // and builds the graph of steps along with the indegree of each step.
+    public StepGraph parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
+            List<String[]> dependencies = new ArrayList<>();
 
-                updateAdjacencyList(step1, step2, adjacencyList);
+            // Steps are single letters at fixed positions in the line.
+            while (reader.nextLine()) {
+                dependencies.add(new String[] { String.valueOf(reader.charAt(5)), String.valueOf(reader.charAt(36)) });
             }
 
-            // Stores the indegrees of each step.
-            int[] indegrees = new int[adjacencyList.size()];
-
-            for (String node : adjacencyList.keySet()) {
-                for (String child : adjacencyList.get(node)) {
-                    // increment the count of incoming edges
-                    // convert the step letter to its ASCII representation and normalize by subtracting 'A'
-                    // to achieve zero-indexing.
-                    indegrees[(int)child.charAt(0) - 'A']++;
-                }
+            PhaseProfiler.Phase phase = PhaseProfiler.begin("build graph");
+            try {
+                return buildGraph(dependencies);
+            } finally {
+                phase.close();
             }
+        }
+    }
 
-            // We clone the original indegrees array that we'll use in part 2
-            // because the topological sort algorithm will modify the indegrees array.
-            int[] indegrees2 = indegrees.clone();
+    // Builds the graph of steps from the (step, dependent step) pairs, along with the indegree of each step.
+    private static StepGraph buildGraph(List<String[]> dependencies) {
+        // Adjacency list representation of the graph formed by the steps
+        Map<String, List<String>> adjacencyList = new HashMap<>();
 
-            String part1 = part1(adjacencyList, indegrees);
-            System.out.println("Part 1 is: " + part1);
+        for (String[] dependency : dependencies) {
+            updateAdjacencyList(dependency[0], dependency[1], adjacencyList);
+        }
 
-            int part2 = part2(adjacencyList, indegrees2, 5);
-            System.out.println("Part 2 is: " + part2);
+        // Stores the indegrees of each step.
+        int[] indegrees = new int[adjacencyList.size()];
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
+        for (String node : adjacencyList.keySet()) {
+            for (String child : adjacencyList.get(node)) {
+                // increment the count of incoming edges
+                // convert the step letter to its ASCII representation and normalize by subtracting 'A'
+                // to achieve zero-indexing.
+                indegrees[(int)child.charAt(0) - 'A']++;
+            }
         }
+
+        return new StepGraph(adjacencyList, indegrees);
+    }
+
+    // We pass a clone of the original indegrees array to each part
+    // because the topological sort algorithm will modify the indegrees array.
+    public Object solvePart1(StepGraph graph) {
+        return part1(graph.adjacencyList, graph.indegrees.clone());
+    }
+
+    public Object solvePart2(StepGraph graph) {
+        return part2(graph.adjacencyList, graph.indegrees.clone(), 5);
     }
 
     // Given an adjacency list, a first step, and a second step that depends upon the first step,
@@ -237,6 +274,397 @@ public class Day7_Sum_of_its_Parts {
         return second;
     }
 
+    // Runs the input's steps with a StepExecutor, each step sleeping for as long as it takes in part 2, scaled to
+    // millisPerSecond milliseconds per second. Prints the makespan part 2 predicts for that many workers, the real
+    // one, the order the steps completed in and the steps' latencies.
+    private static void runExecutor(int workers, double millisPerSecond) throws IOException, InterruptedException, ExecutionException {
+        StepGraph graph = PuzzleRunner.parseInput(new Day7_Sum_of_its_Parts());
+
+        Map<String, Runnable> actions = new HashMap<>();
+        for (String step : graph.adjacencyList.keySet()) {
+            long sleepNanos = (long) ((step.charAt(0) - 4) * millisPerSecond * 1e6);
+            actions.put(step, () -> {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        int predictedSeconds = part2(graph.adjacencyList, graph.indegrees.clone(), workers);
+        ExecutionReport report = new StepExecutor(graph, actions, workers).run();
+
+        System.out.printf("Predicted makespan: %d seconds = %.1f ms%n", predictedSeconds, predictedSeconds * millisPerSecond);
+        System.out.printf("Actual makespan: %.1f ms%n", report.makespanNanos / 1e6);
+        System.out.println("Completion order: " + report.completionOrder);
+        System.out.println("Step durations: " + report.durations.summary());
+        System.out.println("Queue waits: " + report.queueWaits.summary());
+    }
+
+    // Runs the steps of a graph for real, each step being a Runnable, on a fixed pool of worker threads. Like the
+    // workers of part 2, a worker that becomes free takes the alphabetically first step whose dependencies are all
+    // done: the pool's queue is a priority queue of ready steps. When a step finishes, the worker running it counts
+    // down the remaining dependencies of each of its dependents with an atomic decrement, and queues the dependents
+    // that reach zero, so steps are released without taking any lock. With one worker, steps complete in part 1's
+    // order. The steps' timings are recorded to compare the real makespan with the one part 2 predicts.
+    //
+    // An executor runs its graph once. If a step throws, no further steps are started, and run throws once the
+    // steps already running have finished.
+    static class StepExecutor {
+        StepGraph graph;
+        Map<String, Runnable> actions;
+        int workers;
+
+        // Dependencies not yet done, per step.
+        AtomicIntegerArray remaining;
+        ThreadPoolExecutor pool;
+        CountDownLatch done;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<String> failedStep = new AtomicReference<>();
+
+        // Timings per step, each written once by the thread releasing or running the step, and read once all
+        // steps are done.
+        long runStartNanos;
+        long[] readyNanos;
+        long[] startNanos;
+        long[] finishNanos;
+        String[] completionOrder;
+        AtomicInteger completed = new AtomicInteger();
+
+        public StepExecutor(StepGraph graph, Map<String, Runnable> actions, int workers) {
+            if (workers < 1)
+                throw new IllegalArgumentException("Need at least one worker, got " + workers);
+            for (String step : graph.adjacencyList.keySet()) {
+                if (!actions.containsKey(step))
+                    throw new IllegalArgumentException("No action for step " + step);
+            }
+            if (part1(graph.adjacencyList, graph.indegrees.clone()).length() != graph.indegrees.length)
+                throw new IllegalArgumentException("The steps' dependencies form a cycle");
+
+            this.graph = graph;
+            this.actions = actions;
+            this.workers = workers;
+        }
+
+        // Runs all the steps and returns their timings once the last one is done.
+        public ExecutionReport run() throws InterruptedException, ExecutionException {
+            int steps = graph.indegrees.length;
+            remaining = new AtomicIntegerArray(graph.indegrees);
+            readyNanos = new long[steps];
+            startNanos = new long[steps];
+            finishNanos = new long[steps];
+            completionOrder = new String[steps];
+            done = new CountDownLatch(steps);
+            pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+
+            // The steps with no dependencies are all queued before any worker starts, so the first worker cannot
+            // finish a step and release its dependants ahead of an alphabetically earlier step that is not queued yet.
+            runStartNanos = System.nanoTime();
+            try {
+                for (int i = 0; i < steps; i++) {
+                    if (graph.indegrees[i] == 0) {
+                        readyNanos[i] = runStartNanos;
+                        pool.getQueue().add(new StepTask(i));
+                    }
+                }
+                pool.prestartAllCoreThreads();
+                done.await();
+            } finally {
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+
+            if (failure.get() != null)
+                throw new ExecutionException("Step " + failedStep.get() + " failed", failure.get());
+
+            return new ExecutionReport(this);
+        }
+
+        // Queues a step whose dependencies are all done.
+        private void release(int step, long now) {
+            readyNanos[step] = now;
+            try {
+                pool.execute(new StepTask(step));
+            } catch (RejectedExecutionException e) {
+                // The pool only rejects steps once it is shut down after a failure.
+            }
+        }
+
+        // A step queued on the pool. Ordered by step so the pool's queue hands out the alphabetically first step.
+        class StepTask implements Runnable, Comparable<StepTask> {
+            int step;
+
+            public StepTask(int step) {
+                this.step = step;
+            }
+
+            public void run() {
+                if (failure.get() != null)
+                    return;
+
+                String name = String.valueOf((char) (step + 'A'));
+                startNanos[step] = System.nanoTime();
+                try {
+                    actions.get(name).run();
+                } catch (Throwable e) {
+                    if (failure.compareAndSet(null, e))
+                        failedStep.set(name);
+                    // Nothing else will be released, so stop waiting for the remaining steps.
+                    while (done.getCount() > 0) {
+                        done.countDown();
+                    }
+                    return;
+                }
+
+                long now = System.nanoTime();
+                finishNanos[step] = now;
+                completionOrder[completed.getAndIncrement()] = name;
+
+                // Release the dependants that are now ready in alphabetical order, so that an idle worker waiting on
+                // the queue takes the first of them rather than whichever comes first in the adjacency list.
+                List<Integer> ready = new ArrayList<>();
+                for (String child : graph.adjacencyList.get(name)) {
+                    int childStep = child.charAt(0) - 'A';
+                    if (remaining.decrementAndGet(childStep) == 0)
+                        ready.add(childStep);
+                }
+                Collections.sort(ready);
+                for (int childStep : ready) {
+                    release(childStep, now);
+                }
+                done.countDown();
+            }
+
+            public int compareTo(StepTask other) {
+                return Integer.compare(step, other.step);
+            }
+        }
+    }
+
+    // Class holding the timings of a StepExecutor run: the time from starting the run until the last step
+    // finished, the order the steps finished in, and the distributions of how long the steps ran and how long
+    // they waited for a worker once their dependencies were done. Per step times are in nanoseconds since the
+    // start of the run.
+    static class ExecutionReport {
+        long makespanNanos;
+        String completionOrder;
+        long[] readyNanos;
+        long[] startNanos;
+        long[] finishNanos;
+        LatencyHistogram durations = new LatencyHistogram();
+        LatencyHistogram queueWaits = new LatencyHistogram();
+
+        public ExecutionReport(StepExecutor executor) {
+            int steps = executor.finishNanos.length;
+            readyNanos = new long[steps];
+            startNanos = new long[steps];
+            finishNanos = new long[steps];
+            for (int i = 0; i < steps; i++) {
+                readyNanos[i] = executor.readyNanos[i] - executor.runStartNanos;
+                startNanos[i] = executor.startNanos[i] - executor.runStartNanos;
+                finishNanos[i] = executor.finishNanos[i] - executor.runStartNanos;
+                makespanNanos = Math.max(makespanNanos, finishNanos[i]);
+                durations.record(finishNanos[i] - startNanos[i]);
+                queueWaits.record(startNanos[i] - readyNanos[i]);
+            }
+            completionOrder = String.join("", executor.completionOrder);
+        }
+    }
+
+    // Makes random changes to the input's dependencies with a DynamicStepOrder: three in four add a dependency
+    // between two random steps, and the rest remove a random dependency. Prints how many were added, rejected as
+    // cycles and removed, how many steps had to be moved to keep the order, and the final order.
+    private static void runDynamicOrder(int changes) throws IOException {
+        StepGraph graph = PuzzleRunner.parseInput(new Day7_Sum_of_its_Parts());
+        DynamicStepOrder order = new DynamicStepOrder(graph);
+        System.out.println("Initial order: " + String.join("", order.order()));
+
+        List<String> steps = new ArrayList<>(graph.adjacencyList.keySet());
+        List<String[]> dependencies = new ArrayList<>();
+        for (String step : steps) {
+            for (String child : graph.adjacencyList.get(step)) {
+                dependencies.add(new String[] { step, child });
+            }
+        }
+
+        Random random = new Random(7);
+        int added = 0;
+        int cycles = 0;
+        int removed = 0;
+        long movedBefore = order.movedSteps;
+        long start = System.nanoTime();
+        for (int change = 0; change < changes; change++) {
+            if (!dependencies.isEmpty() && random.nextInt(4) == 0) {
+                String[] dependency = dependencies.remove(random.nextInt(dependencies.size()));
+                order.removeEdge(dependency[0], dependency[1]);
+                removed++;
+                continue;
+            }
+
+            String step = steps.get(random.nextInt(steps.size()));
+            String child = steps.get(random.nextInt(steps.size()));
+            try {
+                if (order.addEdge(step, child)) {
+                    dependencies.add(new String[] { step, child });
+                    added++;
+                }
+            } catch (IllegalArgumentException e) {
+                cycles++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Added %d dependencies, rejected %d as cycles, removed %d, moving %d steps, in %.2f ms%n",
+                added, cycles, removed, order.movedSteps - movedBefore, elapsed / 1e6);
+        System.out.println("Final order: " + String.join("", order.order()));
+    }
+
+    // Keeps a topological order of a graph of steps while dependencies are added and removed, with the algorithm
+    // of Pearce and Kelly. Each step has a position in the order, and every dependency goes from an earlier
+    // position to a later one.
+    //
+    // Adding a dependency from a step to a later one changes nothing. Adding one from a step to an earlier one
+    // only affects the steps positioned between the two: the ones reachable from the dependent step (searched
+    // forwards), and the ones the first step is reachable from (searched backwards), neither search leaving that
+    // range. If the forward search reaches the first step, the dependency would close a cycle and is rejected.
+    // Otherwise both sets of steps are moved into the positions they already take up together, the second set
+    // first, each keeping its relative order. Removing a dependency never invalidates the order.
+    //
+    // The order is a valid order for the steps, but not necessarily the alphabetical one part 1 asks for.
+    static class DynamicStepOrder {
+        Map<String, Set<String>> children = new HashMap<>();
+        Map<String, Set<String>> parents = new HashMap<>();
+        Map<String, Integer> positions = new HashMap<>();
+        List<String> order = new ArrayList<>();
+
+        // Total number of steps moved to new positions so far.
+        long movedSteps;
+
+        public DynamicStepOrder() {
+        }
+
+        // Starts from the steps and dependencies of the given graph, adding the steps in alphabetical order.
+        public DynamicStepOrder(StepGraph graph) {
+            List<String> steps = new ArrayList<>(graph.adjacencyList.keySet());
+            Collections.sort(steps);
+            for (String step : steps) {
+                addStep(step);
+            }
+            for (String step : steps) {
+                for (String child : graph.adjacencyList.get(step)) {
+                    addEdge(step, child);
+                }
+            }
+        }
+
+        // Returns the steps in their current order.
+        public List<String> order() {
+            return new ArrayList<>(order);
+        }
+
+        public int position(String step) {
+            return positions.get(step);
+        }
+
+        // Adds a step with no dependencies at the end of the order. Returns false if it is already there.
+        public boolean addStep(String step) {
+            if (positions.containsKey(step))
+                return false;
+
+            positions.put(step, order.size());
+            order.add(step);
+            children.put(step, new HashSet<>());
+            parents.put(step, new HashSet<>());
+            return true;
+        }
+
+        // Adds a dependency: child cannot begin before step is finished. Steps not seen before are added first.
+        // Returns false if the dependency is already there. Throws IllegalArgumentException, leaving the
+        // dependencies as they were, if the dependency would create a cycle.
+        public boolean addEdge(String step, String child) {
+            if (step.equals(child))
+                throw new IllegalArgumentException("Step " + step + " cannot depend on itself");
+
+            addStep(step);
+            addStep(child);
+            if (children.get(step).contains(child))
+                return false;
+
+            int lower = positions.get(child);
+            int upper = positions.get(step);
+            if (lower < upper) {
+                List<String> forward = new ArrayList<>();
+                if (!search(child, upper, step, true, forward))
+                    throw new IllegalArgumentException("Making step " + child + " depend on step " + step
+                            + " would create a cycle: step " + step + " already depends on step " + child);
+
+                List<String> backward = new ArrayList<>();
+                search(step, lower, null, false, backward);
+                reorder(backward, forward);
+            }
+
+            children.get(step).add(child);
+            parents.get(child).add(step);
+            return true;
+        }
+
+        // Removes a dependency. Returns false if there was no such dependency.
+        public boolean removeEdge(String step, String child) {
+            if (!children.containsKey(step) || !children.get(step).remove(child))
+                return false;
+
+            parents.get(child).remove(step);
+            return true;
+        }
+
+        // Collects the steps reachable from start, following dependencies forwards to steps positioned before
+        // bound, or backwards to steps positioned after it. Returns false, stopping early, if it reaches target.
+        private boolean search(String start, int bound, String target, boolean forwards, List<String> found) {
+            Set<String> visited = new HashSet<>();
+            Deque<String> stack = new ArrayDeque<>();
+            visited.add(start);
+            stack.push(start);
+
+            while (!stack.isEmpty()) {
+                String current = stack.pop();
+                found.add(current);
+
+                for (String next : forwards ? children.get(current) : parents.get(current)) {
+                    if (next.equals(target))
+                        return false;
+
+                    int position = positions.get(next);
+                    if ((forwards ? position < bound : position > bound) && visited.add(next))
+                        stack.push(next);
+                }
+            }
+            return true;
+        }
+
+        // Moves the steps found by the backward search ahead of the ones found by the forward search, into the
+        // positions they take up together, keeping the relative order within each set.
+        private void reorder(List<String> backward, List<String> forward) {
+            Comparator<String> byPosition = Comparator.comparingInt(positions::get);
+            backward.sort(byPosition);
+            forward.sort(byPosition);
+
+            List<String> moved = new ArrayList<>(backward);
+            moved.addAll(forward);
+            int[] slots = new int[moved.size()];
+            for (int i = 0; i < moved.size(); i++) {
+                slots[i] = positions.get(moved.get(i));
+            }
+            Arrays.sort(slots);
+
+            for (int i = 0; i < moved.size(); i++) {
+                order.set(slots[i], moved.get(i));
+                positions.put(moved.get(i), slots[i]);
+            }
+            movedSteps += moved.size();
+        }
+    }
+
     // Comparator class for PriorityQueue ordering. This is most likely not needed as
     // the priority queue will use the "natural ordering" of its elements which, for strings, is its
     // lexicographic ordering. However, this is included here as a safeguard in the event that
@@ -253,6 +681,17 @@ public class Day7_Sum_of_its_Parts {
         }
     }
 
+    // Class to bundle the adjacency list of the graph formed by the steps with the indegrees of each step.
+    static class StepGraph {
+        Map<String, List<String>> adjacencyList;
+        int[] indegrees;
+
+        public StepGraph(Map<String, List<String>> adjacencyList, int[] indegrees) {
+            this.adjacencyList = adjacencyList;
+            this.indegrees = indegrees;
+        }
+    }
+
     // Class to represent a worker.
     // The step being worked on will either be an active step or null,
     // indicating that nothing is being worked on now.
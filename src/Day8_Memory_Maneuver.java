@@ -2,31 +2,36 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
-public class Day8_Memory_Maneuver {
+public class Day8_Memory_Maneuver implements Puzzle<List<Integer>> {
     public static void main(String[] args) {
-        File file = new File("./inputs/day8/day8.txt");
+        PuzzleRunner.run(new Day8_Memory_Maneuver());
+    }
+
+    public String inputPath() {
+        return "./inputs/day8/day8.txt";
+    }
 
-        try {
-            Scanner sc = new Scanner(file);
+    // Reads the space-separated numbers of the license file.
+    public List<Integer> parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
             List<Integer> license = new ArrayList<>();
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] tokens = line.split(" ");
-                for (String token : tokens) {
-                    license.add(Integer.parseInt(token));
+            while (reader.nextLine()) {
+                while (reader.hasNextInt()) {
+                    license.add(reader.nextInt());
                 }
             }
 
-            int part1 = part1(license);
-            System.out.println("Part 1 is: " + part1);
+            return license;
+        }
+    }
 
-            int part2 = part2(license);
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(List<Integer> license) {
+        return part1(license);
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(List<Integer> license) {
+        return part2(license);
     }
 
     // Given a list of integers (license), a beginning index (begin),
@@ -1,46 +1,94 @@
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class Day9_Marble_Mania implements Puzzle<Day9_Marble_Mania.GameSettings> {
+    // Number of marbles placed between two snapshots of a checkpointed game.
+    private static final long CHECKPOINT_INTERVAL = 50_000_000;
 
-public class Day9_Marble_Mania {
     public static void main(String[] args) {
-       File file = new File("./inputs/day9/day9.txt");
+        Day9_Marble_Mania puzzle = new Day9_Marble_Mania();
+        if (args.length == 0) {
+            PuzzleRunner.run(puzzle);
+            return;
+        }
 
+        // If a checkpoint file is given, run part 2 on the array-backed game so that a long
+        // simulation can be resumed from its latest snapshot after a crash. The last marble and the
+        // checkpoint interval can be given too, to play games longer than part 2's.
+        // Usage: <checkpoint file> [last marble] [checkpoint interval]
         try {
-            Scanner sc = new Scanner(file);
+            GameSettings settings = puzzle.parse(new File(puzzle.inputPath()));
+            System.out.println("Part 1 is: " + puzzle.solvePart1(settings));
+
+            long lastMarble = args.length > 1 ? Long.parseLong(args[1]) : settings.lastMarble * 100L;
+            long checkpointInterval = args.length > 2 ? Long.parseLong(args[2]) : CHECKPOINT_INTERVAL;
+            long part2 = part2WithCheckpoints(settings.numPlayers, lastMarble, new File(args[0]), checkpointInterval);
+            System.out.println("Part 2 is: " + part2);
+
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    public String inputPath() {
+        return "./inputs/day9/day9.txt";
+    }
+
+    // Reads the number of players and the value of the last marble from
+    // "<numPlayers> players; last marble is worth <lastMarble> points".
+    public GameSettings parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
             int numPlayers = 0;
             int lastMarble = 0;
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] tokens = line.split(" ");
-                numPlayers = Integer.parseInt(tokens[0]);
-                lastMarble = Integer.parseInt(tokens[6]);
+            while (reader.nextLine()) {
+                numPlayers = reader.nextInt();
+                lastMarble = reader.nextInt();
             }
 
-            int part1 = part1(numPlayers, lastMarble);
-            System.out.println("Part 1 is: " + part1);
+            return new GameSettings(numPlayers, lastMarble);
+        }
+    }
 
-            long part2 = part2(numPlayers, lastMarble * 100);
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(GameSettings settings) {
+        return part1(settings.numPlayers, settings.lastMarble);
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    // Part 2 is the same game with a last marble 100 times larger.
+    public Object solvePart2(GameSettings settings) {
+        return part2(settings.numPlayers, settings.lastMarble * 100);
     }
 
     // Part 1: Given the number of players and the last marble number, simulate the marble game
-    // and return the maximum score.
+    // and return the maximum score. The circle used to be an ArrayList, which shifts every element to the right
+    // of an insertion or removal. It is now a MarbleRope, which only shifts within one small block.
     private static int part1(int numPlayers, int lastMarble) {
-        int[] scores = new int[numPlayers]; // keeps track of the scores of all the players
+        return (int) playOnRope(numPlayers, lastMarble);
+    }
+
+    // Simulates the marble game on a MarbleRope, tracking the current marble by its index in the circle,
+    // and returns the maximum score.
+    private static long playOnRope(int numPlayers, int lastMarble) {
+        long[] scores = new long[numPlayers]; // keeps track of the scores of all the players
 
         // Simulate the first two placements of marbles.
-        List<Integer> circle = new ArrayList<>();
-        circle.add(0);
-        circle.add(1);
+        MarbleRope circle = new MarbleRope(lastMarble + 1);
+        circle.add(0, 0);
+        circle.add(1, 1);
 
         int currentMarble = 1; // index of the current marble
-        int currentPlayer = 2; // index of the current player
+        int currentPlayer = 2 % numPlayers; // index of the current player
         int marbleNumber = 2; // Start with the marble 2.
 
         while(marbleNumber <= lastMarble) {
@@ -76,7 +124,7 @@ public class Day9_Marble_Mania {
         }
 
         // Finally, calculate the max score among all the players and return it.
-        int maxScore = 0;
+        long maxScore = 0L;
         for (int i = 0; i < scores.length; i++) {
             if (scores[i] > maxScore)
                 maxScore = scores[i];
@@ -85,7 +133,7 @@ public class Day9_Marble_Mania {
         return maxScore;
     }
 
-    // Part 2: Using an ArrayList (which internally uses an array) in part 1 is very slow.
+    // Part 2: Using an ArrayList (which internally uses an array), as part 1 originally did, is very slow.
     // Specifically, any insertions into the middle of our ArrayList will require that all elements
     // to the right of it need to shifted to the right by one and any removals from our ArrayList will require
     // that all elements to the right of it need to be shifted to the left by one.
@@ -95,7 +143,7 @@ public class Day9_Marble_Mania {
     // to look "backwards" by 7 marbles (that we need) nor the ability to store a pointer to the node
     // (i.e. the current marble) so as to prevent iterating over the entire list to determine the position to
     // insert the next marble. Therefore, we need to solve this by implementing our own circular doubly-linked list.
-    private static long part2(int numPlayers, int lastMarble) {
+    static long part2(int numPlayers, int lastMarble) {
         long[] scores = new long[numPlayers]; // keeps track of the scores of all the players
 
         // Initialize our circular DLL to store the game.
@@ -123,6 +171,80 @@ public class Day9_Marble_Mania {
         return maxScore;
     }
 
+    // Part 2 (rope): Same game as part 2, but played on the chunked MarbleRope used by part 1.
+    // Inserts and removes cost O(sqrt n) instead of O(1), but the marbles sit next to each other in a few
+    // int[] blocks instead of being scattered across the heap as Marble objects.
+    static long part2WithRope(int numPlayers, int lastMarble) {
+        return playOnRope(numPlayers, lastMarble);
+    }
+
+    // Part 2 (checkpointed): Same game as part 2, but played on the array-backed circle so that its state can be
+    // snapshotted cheaply. Every checkpointInterval marbles, a snapshot of the circle, the next marble, the current
+    // player and the scores is started, and written by a background thread while the game goes on. If the
+    // checkpoint file already holds a snapshot of a game with the same number of players and last marble, the
+    // simulation resumes from there instead of from marble 1. Throws IOException if a snapshot cannot be written,
+    // and IllegalArgumentException if the checkpoint interval is not positive.
+    static long part2WithCheckpoints(int numPlayers, long lastMarble, File checkpointFile, long checkpointInterval) throws IOException {
+        if (checkpointInterval < 1)
+            throw new IllegalArgumentException("Checkpoint interval must be positive, got " + checkpointInterval);
+
+        MarbleGameCheckpointer checkpointer = new MarbleGameCheckpointer(checkpointFile);
+        MarbleGameState state = checkpointer.load(numPlayers, lastMarble);
+
+        ArrayMarbleCircleGame game;
+        long[] scores;
+        long marbleNumber;
+        int currentPlayer;
+
+        if (state != null) {
+            game = new ArrayMarbleCircleGame(lastMarble, state.next, state.currentMarble, state.numMarbles);
+            scores = state.scores;
+            marbleNumber = state.nextMarble;
+            currentPlayer = state.currentPlayer;
+        } else {
+            // Marble 0 is already in the circle, so the game starts with marble 1 and its player.
+            game = new ArrayMarbleCircleGame(lastMarble);
+            scores = new long[numPlayers];
+            marbleNumber = 1;
+            currentPlayer = 1 % numPlayers;
+        }
+
+        try {
+            while (marbleNumber <= lastMarble) {
+                scores[currentPlayer] += game.addNextMarble(marbleNumber);
+                currentPlayer = (currentPlayer + 1) % numPlayers;
+                marbleNumber++;
+
+                if (marbleNumber % checkpointInterval == 0)
+                    checkpointer.snapshot(game, numPlayers, lastMarble, marbleNumber, currentPlayer, scores);
+            }
+        } finally {
+            checkpointer.close();
+        }
+
+        // The game is over, so there is nothing left to resume.
+        checkpointFile.delete();
+
+        long maxScore = 0L;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > maxScore)
+                maxScore = scores[i];
+        }
+
+        return maxScore;
+    }
+
+    // Class to bundle the number of players and the value of the last marble of a game.
+    static class GameSettings {
+        int numPlayers;
+        int lastMarble;
+
+        public GameSettings(int numPlayers, int lastMarble) {
+            this.numPlayers = numPlayers;
+            this.lastMarble = lastMarble;
+        }
+    }
+
     // Class representing a marble. A marble has a marble to its right/next/clockwise
     // and a marble to its left/previous/counter-clockwise.
     static class Marble {
@@ -214,4 +336,555 @@ public class Day9_Marble_Mania {
             System.out.println();
         }
     }
+
+    // Class representing a marble circle game backed by int arrays instead of Marble objects.
+    // Every marble value is placed into the circle at most once, so the value itself can be used as the index
+    // into next (clockwise neighbour) and prev (counter-clockwise neighbour). This avoids allocating a node per
+    // marble and lets a snapshot be taken by writing out next as it is. The arrays are split into chunks of
+    // CHUNK_SIZE entries, so a game can have more marbles than a single Java array can hold, and neighbours are
+    // stored as unsigned ints, which allows up to MAX_LAST_MARBLE marbles.
+    static class ArrayMarbleCircleGame {
+        static final int CHUNK_SHIFT = 20;
+        static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+        static final int CHUNK_MASK = CHUNK_SIZE - 1;
+        static final long MAX_LAST_MARBLE = 0xFFFFFFFFL;
+
+        int[][] next;
+        int[][] prev;
+        long currentMarble; // value of the current marble
+        long numMarbles;
+
+        // Snapshot whose chunks are still being written, if any. Only used by the thread playing the game.
+        CircleSnapshot snapshot;
+
+        // Starts a new game with only the marble numbered 0 in the circle.
+        public ArrayMarbleCircleGame(long lastMarble) {
+            this(lastMarble, newChunks(lastMarble), 0, 1);
+        }
+
+        // Restores a game from the clockwise neighbours of its marbles, as written by a snapshot, and the current
+        // marble. The counter-clockwise neighbours are found by walking the circle.
+        public ArrayMarbleCircleGame(long lastMarble, int[][] next, long currentMarble, long numMarbles) {
+            this.next = next;
+            this.prev = newChunks(lastMarble);
+            this.currentMarble = currentMarble;
+            this.numMarbles = numMarbles;
+
+            long marble = currentMarble;
+            for (long i = 0; i < numMarbles; i++) {
+                long nextMarble = next(marble);
+                setPrev(nextMarble, marble);
+                marble = nextMarble;
+            }
+        }
+
+        // Returns chunks with room for the marbles 0 to lastMarble.
+        static int[][] newChunks(long lastMarble) {
+            if (lastMarble < 0 || lastMarble > MAX_LAST_MARBLE)
+                throw new IllegalArgumentException("Last marble must be between 0 and " + MAX_LAST_MARBLE + ", got " + lastMarble);
+
+            long size = lastMarble + 1;
+            int[][] chunks = new int[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)][];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = new int[(int) Math.min(CHUNK_SIZE, size - ((long) i << CHUNK_SHIFT))];
+            }
+            return chunks;
+        }
+
+        long next(long marble) {
+            return Integer.toUnsignedLong(next[(int) (marble >>> CHUNK_SHIFT)][(int) marble & CHUNK_MASK]);
+        }
+
+        long prev(long marble) {
+            return Integer.toUnsignedLong(prev[(int) (marble >>> CHUNK_SHIFT)][(int) marble & CHUNK_MASK]);
+        }
+
+        // Changes a clockwise neighbour, first letting a snapshot in progress save the chunk if it has not yet.
+        private void setNext(long marble, long value) {
+            int chunk = (int) (marble >>> CHUNK_SHIFT);
+            if (snapshot != null)
+                snapshot.beforeWrite(chunk);
+            next[chunk][(int) marble & CHUNK_MASK] = (int) value;
+        }
+
+        private void setPrev(long marble, long value) {
+            prev[(int) (marble >>> CHUNK_SHIFT)][(int) marble & CHUNK_MASK] = (int) value;
+        }
+
+        // Adds the given marble value to the marble circle and returns the value of any marbles scored.
+        // Follows the same rules as MarbleCircleGame.addNextMarble.
+        public long addNextMarble(long value) {
+            if (value % 23 == 0) {
+                long marbleToBeRemoved = currentMarble;
+                for (int i = 0; i < 7; i++)
+                    marbleToBeRemoved = prev(marbleToBeRemoved);
+
+                long left = prev(marbleToBeRemoved);
+                long right = next(marbleToBeRemoved);
+                setNext(left, right);
+                setPrev(right, left);
+                currentMarble = right;
+                numMarbles -= 1;
+
+                return value + marbleToBeRemoved;
+            }
+
+            long oneAway = next(currentMarble);
+            long twoAway = next(oneAway);
+
+            setNext(oneAway, value);
+            setPrev(value, oneAway);
+            setNext(value, twoAway);
+            setPrev(twoAway, value);
+
+            currentMarble = value;
+            numMarbles += 1;
+            return 0;
+        }
+    }
+
+    // Snapshot of the clockwise neighbours of the marbles below nextMarble, taken without copying them up front.
+    // The background writer saves the game's chunks one at a time while the game goes on. Before the game changes
+    // a chunk the writer has not saved yet, it copies that chunk for the writer (copy on write), so each chunk is
+    // saved as it was when the snapshot was taken. The game only copies the few chunks it changes while the
+    // snapshot is being written, which are the ones around the current marble and the newest marbles, and at
+    // worst waits for the writer to finish copying one chunk.
+    //
+    // Each chunk goes from PENDING to CLAIMED by whichever thread gets to it first, and then to SAVED (copied by
+    // the writer) or COPIED (copied by the game, waiting in copies for the writer).
+    static class CircleSnapshot {
+        private static final int PENDING = 0;
+        private static final int CLAIMED = 1;
+        private static final int SAVED = 2;
+        private static final int COPIED = 3;
+
+        int[][] chunks;
+        long entries;
+        int chunkCount;
+        AtomicIntegerArray states;
+        AtomicReferenceArray<int[]> copies;
+
+        // Chunks the game knows to be saved or copied, so it no longer checks them. Only used by the game.
+        boolean[] settled;
+
+        public CircleSnapshot(int[][] chunks, long entries) {
+            this.chunks = chunks;
+            this.entries = entries;
+            this.chunkCount = (int) ((entries + ArrayMarbleCircleGame.CHUNK_SIZE - 1) >>> ArrayMarbleCircleGame.CHUNK_SHIFT);
+            this.states = new AtomicIntegerArray(chunkCount);
+            this.copies = new AtomicReferenceArray<>(chunkCount);
+            this.settled = new boolean[chunkCount];
+        }
+
+        // Number of entries of the given chunk that are part of the snapshot.
+        int chunkLength(int chunk) {
+            return (int) Math.min(ArrayMarbleCircleGame.CHUNK_SIZE, entries - ((long) chunk << ArrayMarbleCircleGame.CHUNK_SHIFT));
+        }
+
+        // Called by the game before it changes the given chunk.
+        void beforeWrite(int chunk) {
+            if (chunk >= chunkCount || settled[chunk])
+                return;
+
+            if (states.compareAndSet(chunk, PENDING, CLAIMED)) {
+                copies.set(chunk, Arrays.copyOf(chunks[chunk], chunkLength(chunk)));
+                states.set(chunk, COPIED);
+            } else {
+                // The writer is copying the chunk, which only takes a moment.
+                while (states.get(chunk) == CLAIMED) {
+                    Thread.yield();
+                }
+            }
+            settled[chunk] = true;
+        }
+
+        // Called by the writer: returns the chunk as it was when the snapshot was taken, either copied into the
+        // given buffer or as copied by the game.
+        int[] takeChunk(int chunk, int[] buffer) {
+            if (states.compareAndSet(chunk, PENDING, CLAIMED)) {
+                System.arraycopy(chunks[chunk], 0, buffer, 0, chunkLength(chunk));
+                states.set(chunk, SAVED);
+                return buffer;
+            }
+
+            while (states.get(chunk) == CLAIMED) {
+                Thread.yield();
+            }
+            return copies.getAndSet(chunk, null);
+        }
+
+        // Called by the writer when it stops, whether or not it wrote every chunk, so the game does not copy
+        // chunks nobody will take.
+        void release() {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                states.compareAndSet(chunk, PENDING, SAVED);
+                copies.set(chunk, null);
+            }
+        }
+    }
+
+    // Class bundling everything needed to resume a marble game: the game parameters, the next marble to be placed,
+    // the player who places it, the scores so far, the current marble and the clockwise neighbour of every marble
+    // below the next marble, in chunks sized for the whole game.
+    static class MarbleGameState {
+        int numPlayers;
+        long lastMarble;
+        long nextMarble;
+        int currentPlayer;
+        long[] scores;
+        long currentMarble;
+        long numMarbles;
+        int[][] next;
+
+        public MarbleGameState(int numPlayers, long lastMarble, long nextMarble, int currentPlayer, long[] scores,
+                               long currentMarble, long numMarbles, int[][] next) {
+            this.numPlayers = numPlayers;
+            this.lastMarble = lastMarble;
+            this.nextMarble = nextMarble;
+            this.currentPlayer = currentPlayer;
+            this.scores = scores;
+            this.currentMarble = currentMarble;
+            this.numMarbles = numMarbles;
+            this.next = next;
+        }
+    }
+
+    // Class that writes snapshots of an ArrayMarbleCircleGame to a compact binary file and reads them back.
+    // Taking a snapshot only copies the scores on the simulation thread; the circle is written chunk by chunk on
+    // a background thread through a CircleSnapshot. If the previous snapshot is still being written, a new
+    // snapshot is skipped rather than making the simulation wait. Each snapshot is written to a temporary file
+    // that then replaces the checkpoint file, so a crash in the middle of a write leaves the previous snapshot
+    // intact. A snapshot that fails to be written is reported by the next call to snapshot or close.
+    //
+    // File format (big-endian): magic, version, numPlayers and currentPlayer as ints, lastMarble, nextMarble,
+    // currentMarble and numMarbles as longs, the scores as longs, then the clockwise neighbour of each marble
+    // from 0 to nextMarble - 1 as unsigned ints.
+    static class MarbleGameCheckpointer {
+        private static final int MAGIC = 0x4D41524C; // "MARL"
+        private static final int VERSION = 2;
+        private static final int HEADER_BYTES = 4 * 4 + 4 * 8;
+
+        File file;
+        ExecutorService writer;
+        Future<?> pendingWrite;
+
+        public MarbleGameCheckpointer(File file) {
+            this.file = file;
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "marble-checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // Takes a snapshot of the given game and schedules it to be written. Returns false if the snapshot was
+        // skipped because the previous one is still being written. Throws IOException if the previous one
+        // could not be written.
+        public boolean snapshot(ArrayMarbleCircleGame game, int numPlayers, long lastMarble,
+                                long nextMarble, int currentPlayer, long[] scores) throws IOException {
+            if (pendingWrite != null) {
+                if (!pendingWrite.isDone())
+                    return false;
+                awaitPendingWrite();
+            }
+
+            // Only marbles below nextMarble can be in the circle, so that is all of next the snapshot needs.
+            CircleSnapshot snapshot = new CircleSnapshot(game.next, nextMarble);
+            game.snapshot = snapshot;
+            MarbleGameState state = new MarbleGameState(numPlayers, lastMarble, nextMarble, currentPlayer,
+                    scores.clone(), game.currentMarble, game.numMarbles, null);
+
+            pendingWrite = writer.submit(() -> {
+                write(state, snapshot);
+                return null;
+            });
+
+            return true;
+        }
+
+        // Writes the given state, with the circle taken from the snapshot, to a temporary file and moves it over
+        // the checkpoint file.
+        private void write(MarbleGameState state, CircleSnapshot snapshot) throws IOException {
+            File tempFile = new File(file.getPath() + ".tmp");
+
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 8 * state.numPlayers);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putInt(state.numPlayers);
+                header.putInt(state.currentPlayer);
+                header.putLong(state.lastMarble);
+                header.putLong(state.nextMarble);
+                header.putLong(state.currentMarble);
+                header.putLong(state.numMarbles);
+                for (long score : state.scores)
+                    header.putLong(score);
+                header.flip();
+                writeFully(channel, header);
+
+                ByteBuffer bytes = ByteBuffer.allocateDirect(4 * ArrayMarbleCircleGame.CHUNK_SIZE);
+                int[] buffer = new int[ArrayMarbleCircleGame.CHUNK_SIZE];
+                for (int chunk = 0; chunk < snapshot.chunkCount; chunk++) {
+                    int length = snapshot.chunkLength(chunk);
+                    bytes.clear();
+                    bytes.asIntBuffer().put(snapshot.takeChunk(chunk, buffer), 0, length);
+                    bytes.limit(4 * length);
+                    writeFully(channel, bytes);
+                }
+            } finally {
+                snapshot.release();
+            }
+
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // Reads the latest snapshot from the checkpoint file. Returns null if there is no snapshot,
+        // or if the snapshot belongs to a game with a different number of players or last marble.
+        public MarbleGameState load(int numPlayers, long lastMarble) {
+            if (!file.exists())
+                return null;
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                readFully(channel, header);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                    return null;
+
+                int savedNumPlayers = header.getInt();
+                int currentPlayer = header.getInt();
+                long savedLastMarble = header.getLong();
+                if (savedNumPlayers != numPlayers || savedLastMarble != lastMarble)
+                    return null;
+
+                long nextMarble = header.getLong();
+                long currentMarble = header.getLong();
+                long numMarbles = header.getLong();
+
+                ByteBuffer scoreBytes = ByteBuffer.allocate(8 * numPlayers);
+                readFully(channel, scoreBytes);
+                scoreBytes.flip();
+                long[] scores = new long[numPlayers];
+                scoreBytes.asLongBuffer().get(scores);
+
+                // Read straight into the chunks the resumed game will use.
+                int[][] next = ArrayMarbleCircleGame.newChunks(lastMarble);
+                CircleSnapshot layout = new CircleSnapshot(next, nextMarble);
+                ByteBuffer bytes = ByteBuffer.allocateDirect(4 * ArrayMarbleCircleGame.CHUNK_SIZE);
+                for (int chunk = 0; chunk < layout.chunkCount; chunk++) {
+                    int length = layout.chunkLength(chunk);
+                    bytes.clear();
+                    bytes.limit(4 * length);
+                    readFully(channel, bytes);
+                    bytes.flip();
+                    bytes.asIntBuffer().get(next[chunk], 0, length);
+                }
+
+                return new MarbleGameState(numPlayers, lastMarble, nextMarble, currentPlayer, scores, currentMarble, numMarbles, next);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+                return null;
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("Checkpoint file ends early");
+            }
+        }
+
+        // Waits for the snapshot being written, throwing IOException if it could not be written.
+        private void awaitPendingWrite() throws IOException {
+            try {
+                pendingWrite.get();
+            } catch (ExecutionException exception) {
+                Throwable cause = exception.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                throw new IOException("Checkpoint could not be written", cause);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the checkpoint to be written");
+            } finally {
+                pendingWrite = null;
+            }
+        }
+
+        // Waits for any snapshot still being written and stops the background writer. Throws IOException if
+        // that snapshot could not be written.
+        public void close() throws IOException {
+            try {
+                if (pendingWrite != null)
+                    awaitPendingWrite();
+            } finally {
+                writer.shutdown();
+            }
+        }
+    }
+
+    // Class representing a marble circle as an unrolled list: a sequence of int[] blocks, each holding a run of
+    // consecutive marbles. Finding an index walks the block sizes and inserting or removing only shifts the
+    // marbles within one block, so both cost O(n / blockCapacity + blockCapacity). The block capacity is kept
+    // around sqrt(n) by rebuilding the blocks whenever the circle outgrows it, which makes both O(sqrt n).
+    // Because the game only ever moves a few places away from the last index it touched, the block that was
+    // last accessed is remembered and the walk starts from there.
+    static class MarbleRope {
+        private static final int MIN_BLOCK_CAPACITY = 64;
+
+        int[][] blocks;
+        int[] blockSizes;
+        int numBlocks;
+        int size;
+        int blockCapacity;
+
+        // Cursor to the block that was last accessed and the index of its first marble.
+        int cursorBlock;
+        int cursorStart;
+
+        // Creates an empty rope sized for roughly the given number of marbles.
+        public MarbleRope(int expectedSize) {
+            blockCapacity = Math.max(MIN_BLOCK_CAPACITY, (int) Math.sqrt(expectedSize));
+            blocks = new int[16][];
+            blockSizes = new int[16];
+            blocks[0] = new int[blockCapacity];
+            numBlocks = 1;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Returns the marble at the given index.
+        public int get(int index) {
+            int block = locate(index);
+            return blocks[block][index - cursorStart];
+        }
+
+        // Inserts the marble at the given index, shifting the marbles at and after it one place to the right.
+        // An index equal to the size appends the marble to the end.
+        public void add(int index, int marble) {
+            int block = size == 0 ? 0 : locate(index == size ? index - 1 : index);
+
+            if (blockSizes[block] == blockCapacity) {
+                splitBlock(block);
+                block = locate(index == size ? index - 1 : index);
+            }
+
+            int offset = index - cursorStart;
+            int[] values = blocks[block];
+            System.arraycopy(values, offset, values, offset + 1, blockSizes[block] - offset);
+            values[offset] = marble;
+            blockSizes[block]++;
+            size++;
+
+            // Keep the block capacity around sqrt(n) as the circle grows.
+            if (size > 4L * blockCapacity * blockCapacity)
+                rebuild(2 * blockCapacity);
+        }
+
+        // Removes and returns the marble at the given index, shifting the marbles after it one place to the left.
+        public int remove(int index) {
+            int block = locate(index);
+            int offset = index - cursorStart;
+            int[] values = blocks[block];
+            int marble = values[offset];
+            System.arraycopy(values, offset + 1, values, offset, blockSizes[block] - offset - 1);
+            blockSizes[block]--;
+            size--;
+
+            if (blockSizes[block] == 0 && numBlocks > 1)
+                removeBlock(block);
+
+            return marble;
+        }
+
+        // Returns the block holding the given index and leaves the cursor on it. Walks from the cursor
+        // towards the index, so nearby accesses only look at a block or two.
+        private int locate(int index) {
+            if (index < 0 || index >= Math.max(size, 1))
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+            while (index < cursorStart) {
+                cursorBlock--;
+                cursorStart -= blockSizes[cursorBlock];
+            }
+            while (index >= cursorStart + blockSizes[cursorBlock] && cursorBlock < numBlocks - 1) {
+                cursorStart += blockSizes[cursorBlock];
+                cursorBlock++;
+            }
+
+            return cursorBlock;
+        }
+
+        // Splits a full block into two half-full blocks.
+        private void splitBlock(int block) {
+            ensureBlockSlots(numBlocks + 1);
+            System.arraycopy(blocks, block + 1, blocks, block + 2, numBlocks - block - 1);
+            System.arraycopy(blockSizes, block + 1, blockSizes, block + 2, numBlocks - block - 1);
+
+            int half = blockSizes[block] / 2;
+            int[] right = new int[blockCapacity];
+            System.arraycopy(blocks[block], half, right, 0, blockSizes[block] - half);
+
+            blocks[block + 1] = right;
+            blockSizes[block + 1] = blockSizes[block] - half;
+            blockSizes[block] = half;
+            numBlocks++;
+        }
+
+        // Removes an empty block. The cursor moves back to the start of the rope since its block is gone.
+        private void removeBlock(int block) {
+            System.arraycopy(blocks, block + 1, blocks, block, numBlocks - block - 1);
+            System.arraycopy(blockSizes, block + 1, blockSizes, block, numBlocks - block - 1);
+            numBlocks--;
+            blocks[numBlocks] = null;
+            blockSizes[numBlocks] = 0;
+            cursorBlock = 0;
+            cursorStart = 0;
+        }
+
+        // Grows the arrays holding the blocks so that they fit at least the given number of blocks.
+        private void ensureBlockSlots(int minBlocks) {
+            if (minBlocks > blocks.length) {
+                int newLength = Math.max(minBlocks, blocks.length * 2);
+                blocks = Arrays.copyOf(blocks, newLength);
+                blockSizes = Arrays.copyOf(blockSizes, newLength);
+            }
+        }
+
+        // Repacks all marbles into half-full blocks of the given capacity.
+        private void rebuild(int newBlockCapacity) {
+            int half = newBlockCapacity / 2;
+            int newNumBlocks = (size + half - 1) / half;
+            int[][] newBlocks = new int[Math.max(16, newNumBlocks)][];
+            int[] newBlockSizes = new int[newBlocks.length];
+
+            int target = 0;
+            newBlocks[0] = new int[newBlockCapacity];
+            for (int block = 0; block < numBlocks; block++) {
+                for (int i = 0; i < blockSizes[block]; i++) {
+                    if (newBlockSizes[target] == half) {
+                        target++;
+                        newBlocks[target] = new int[newBlockCapacity];
+                    }
+                    newBlocks[target][newBlockSizes[target]++] = blocks[block][i];
+                }
+            }
+
+            blocks = newBlocks;
+            blockSizes = newBlockSizes;
+            numBlocks = target + 1;
+            blockCapacity = newBlockCapacity;
+            cursorBlock = 0;
+            cursorStart = 0;
+        }
+    }
 }
@@ -0,0 +1,436 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+// Generates synthetic inputs in the exact format each day's parser expects, so the solvers can be run and
+// benchmarked on inputs much larger than the checked-in ones. Generation is driven by a seeded Random, so the
+// same day, size and seed always produce the same file.
+// Usage: InputGenerator <day> <size> [--seed=N] [output file]
+// Without an output file the input is written to standard output. What the size means depends on the day:
+//   1: number of frequency changes          6: number of coordinates
+//   2: number of box IDs                    7: number of steps (at most 26, as steps are single letters)
+//   3: number of claims                     8: number of nodes in the license tree
+//   4: number of nights on guard duty       9: value of the last marble
+//   5: length of the polymer               10: number of lights
+// Each input is built to have an answer: e.g. day 2 always contains a pair of IDs differing by one character,
+// day 3 always contains a claim that overlaps no other, and day 10's lights always converge to a readable message.
+public class InputGenerator {
+    private static final long DEFAULT_SEED = 2018;
+
+    // Interface for generating one day's input of the given size.
+    interface Generator {
+        void generate(Random random, int size, PrintWriter out);
+    }
+
+    private static final Map<Integer, Generator> GENERATORS = new TreeMap<>();
+
+    static {
+        GENERATORS.put(1, InputGenerator::generateFrequencyChanges);
+        GENERATORS.put(2, InputGenerator::generateBoxIds);
+        GENERATORS.put(3, InputGenerator::generateClaims);
+        GENERATORS.put(4, InputGenerator::generateGuardRecords);
+        GENERATORS.put(5, InputGenerator::generatePolymer);
+        GENERATORS.put(6, InputGenerator::generateCoordinates);
+        GENERATORS.put(7, InputGenerator::generateStepDependencies);
+        GENERATORS.put(8, InputGenerator::generateLicense);
+        GENERATORS.put(9, InputGenerator::generateMarbleGame);
+        GENERATORS.put(10, InputGenerator::generateLights);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = DEFAULT_SEED;
+        List<String> positional = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else {
+                positional.add(arg);
+            }
+        }
+
+        if (positional.size() < 2) {
+            System.err.println("Usage: InputGenerator <day> <size> [--seed=N] [output file]");
+            System.exit(1);
+        }
+
+        int day = Integer.parseInt(positional.get(0));
+        int size = Integer.parseInt(positional.get(1));
+
+        if (positional.size() > 2) {
+            generate(day, size, seed, new File(positional.get(2)));
+        } else {
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            generate(day, size, seed, out);
+            out.flush();
+        }
+    }
+
+    // Writes the day's input of the given size and seed to the file.
+    public static void generate(int day, int size, long seed, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))) {
+            generate(day, size, seed, out);
+        }
+    }
+
+    // Writes the day's input of the given size and seed. Lines end in '\n' on every platform, so the output
+    // is byte-for-byte the same everywhere.
+    public static void generate(int day, int size, long seed, PrintWriter out) {
+        Generator generator = GENERATORS.get(day);
+        if (generator == null)
+            throw new IllegalArgumentException("No input generator for day " + day);
+        if (size < 1)
+            throw new IllegalArgumentException("Size must be positive: " + size);
+
+        generator.generate(new Random(seed), size, out);
+    }
+
+    // Returns the days that have an input generator, in order.
+    static Set<Integer> days() {
+        return Collections.unmodifiableSet(GENERATORS.keySet());
+    }
+
+    // Day 1: "+N" or "-N" per line. Part 2 only ends if some frequency repeats, which is guaranteed when the
+    // total change over one pass is smaller than the number of changes: two of the running sums then fall in the
+    // same residue class modulo the total, and the later pass reaches the earlier one. The last change is chosen
+    // to make the total such a value, and large enough that only a few passes are needed.
+    private static void generateFrequencyChanges(Random random, int size, PrintWriter out) {
+        final int maxChange = 20;
+
+        long sum = 0;
+        for (int i = 0; i < size - 1; i++) {
+            int change = 1 + random.nextInt(maxChange);
+            if (random.nextBoolean())
+                change = -change;
+            sum += change;
+            writeFrequencyChange(change, out);
+        }
+
+        int totalBound = (int) Math.min(size - 1, maxChange * Math.sqrt(size));
+        long total = totalBound > 0 ? 1 + random.nextInt(totalBound) : 0;
+        if (random.nextBoolean())
+            total = -total;
+        writeFrequencyChange(total - sum, out);
+    }
+
+    private static void writeFrequencyChange(long change, PrintWriter out) {
+        out.print(change < 0 ? "-" : "+");
+        out.print(Math.abs(change));
+        out.print('\n');
+    }
+
+    // Day 2: random 26-letter lowercase IDs, with exactly one planted pair that differs in a single position.
+    private static void generateBoxIds(Random random, int size, PrintWriter out) {
+        final int idLength = 26;
+
+        List<char[]> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            char[] id = new char[idLength];
+            for (int j = 0; j < idLength; j++) {
+                id[j] = (char) ('a' + random.nextInt(26));
+            }
+            ids.add(id);
+        }
+
+        if (size >= 2) {
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first)
+                second++;
+
+            char[] twin = ids.get(first).clone();
+            int position = random.nextInt(idLength);
+            twin[position] = (char) ('a' + (twin[position] - 'a' + 1 + random.nextInt(25)) % 26);
+            ids.set(second, twin);
+        }
+
+        for (char[] id : ids) {
+            out.print(id);
+            out.print('\n');
+        }
+    }
+
+    // Day 3: "#id @ left,top: widthxheight" claims on the 1000x1000 fabric the solver assumes. One claim, at a
+    // random position in the list, gets an area of the fabric that no other claim is allowed to touch.
+    private static void generateClaims(Random random, int size, PrintWriter out) {
+        final int fabricSize = 1000;
+        final int minSide = 10;
+        final int maxSide = 29;
+
+        int[] intact = randomClaim(random, fabricSize, minSide, maxSide);
+        int intactIndex = random.nextInt(size);
+
+        for (int i = 0; i < size; i++) {
+            int[] claim = intact;
+            if (i != intactIndex) {
+                do {
+                    claim = randomClaim(random, fabricSize, minSide, maxSide);
+                } while (claimsOverlap(claim, intact));
+            }
+
+            out.printf("#%d @ %d,%d: %dx%d\n", i + 1, claim[0], claim[1], claim[2], claim[3]);
+        }
+    }
+
+    // Returns a claim as {left, top, width, height} that fits on the fabric.
+    private static int[] randomClaim(Random random, int fabricSize, int minSide, int maxSide) {
+        int width = minSide + random.nextInt(maxSide - minSide + 1);
+        int height = minSide + random.nextInt(maxSide - minSide + 1);
+        int left = random.nextInt(fabricSize - width + 1);
+        int top = random.nextInt(fabricSize - height + 1);
+        return new int[] { left, top, width, height };
+    }
+
+    private static boolean claimsOverlap(int[] a, int[] b) {
+        return a[0] < b[0] + b[2] && b[0] < a[0] + a[2] && a[1] < b[1] + b[3] && b[1] < a[1] + a[3];
+    }
+
+    // Day 4: one shift per night, starting shortly before or just after midnight, followed by up to four naps
+    // during the midnight hour. About one guard per 25 nights, as in the real input. The records are shuffled,
+    // since the solver has to sort them.
+    private static void generateGuardRecords(Random random, int size, PrintWriter out) {
+        final int maxNaps = 4;
+
+        int[] guards = new int[Math.max(1, size / 25)];
+        Set<Integer> usedIds = new HashSet<>();
+        for (int i = 0; i < guards.length; i++) {
+            int id;
+            do {
+                id = 1 + random.nextInt(Math.max(4000, guards.length * 2));
+            } while (!usedIds.add(id));
+            guards[i] = id;
+        }
+
+        List<String> records = new ArrayList<>();
+        LocalDate night = LocalDate.of(1518, 1, 1);
+        for (int i = 0; i < size; i++, night = night.plusDays(1)) {
+            int guard = guards[random.nextInt(guards.length)];
+
+            int firstNapMinute;
+            if (random.nextBoolean()) {
+                records.add(guardRecord(night.minusDays(1), 23, 45 + random.nextInt(15), "Guard #" + guard + " begins shift"));
+                firstNapMinute = 0;
+            } else {
+                int minute = random.nextInt(4);
+                records.add(guardRecord(night, 0, minute, "Guard #" + guard + " begins shift"));
+                firstNapMinute = minute + 1;
+            }
+
+            // Pick distinct minutes for falling asleep and waking up, alternately, in increasing order.
+            int naps = random.nextInt(maxNaps + 1);
+            TreeSet<Integer> minutes = new TreeSet<>();
+            while (minutes.size() < naps * 2) {
+                minutes.add(firstNapMinute + random.nextInt(60 - firstNapMinute));
+            }
+
+            boolean asleep = false;
+            for (int minute : minutes) {
+                asleep = !asleep;
+                records.add(guardRecord(night, 0, minute, asleep ? "falls asleep" : "wakes up"));
+            }
+        }
+
+        Collections.shuffle(records, random);
+        for (String record : records) {
+            out.print(record);
+            out.print('\n');
+        }
+    }
+
+    private static String guardRecord(LocalDate date, int hour, int minute, String event) {
+        return String.format("[%04d-%02d-%02d %02d:%02d] %s", date.getYear(), date.getMonthValue(), date.getDayOfMonth(), hour, minute, event);
+    }
+
+    // Day 5: a single line of letters. Half of the units are the opposite polarity of the unit before them, so
+    // the polymer reacts a lot, like the real input.
+    private static void generatePolymer(Random random, int size, PrintWriter out) {
+        char[] polymer = new char[size];
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && random.nextBoolean()) {
+                char previous = polymer[i - 1];
+                polymer[i] = Character.isUpperCase(previous) ? Character.toLowerCase(previous) : Character.toUpperCase(previous);
+            } else {
+                char unit = (char) ('a' + random.nextInt(26));
+                polymer[i] = random.nextBoolean() ? Character.toUpperCase(unit) : unit;
+            }
+        }
+
+        out.print(polymer);
+        out.print('\n');
+    }
+
+    // Day 6: "x, y" per line, distinct points spread over a square whose side grows with the square root of the
+    // number of points, so the density matches the real input's 50 points on a side of about 350.
+    private static void generateCoordinates(Random random, int size, PrintWriter out) {
+        int side = Math.max((int) Math.ceil(Math.sqrt(size)) + 1, (int) (50 * Math.sqrt(size)));
+
+        Set<Long> used = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            int x;
+            int y;
+            do {
+                x = random.nextInt(side);
+                y = random.nextInt(side);
+            } while (!used.add((long) x * side + y));
+
+            out.printf("%d, %d\n", x, y);
+        }
+    }
+
+    // Day 7: "Step X must be finished before step Y can begin." lines forming a random DAG over the first size
+    // letters. Edges only go forward in a random order of the steps, so there is no cycle. Every step but the
+    // first in that order depends on some earlier step, so every step appears in at least one line.
+    private static void generateStepDependencies(Random random, int size, PrintWriter out) {
+        if (size > 26)
+            throw new IllegalArgumentException("Steps are single letters, so there can be at most 26: " + size);
+
+        List<Character> order = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            order.add((char) ('A' + i));
+        }
+        Collections.shuffle(order, random);
+
+        Set<String> edges = new LinkedHashSet<>();
+        for (int i = 1; i < size; i++) {
+            edges.add(order.get(random.nextInt(i)) + "" + order.get(i));
+        }
+        for (int i = 0; i < size * 3; i++) {
+            int from = random.nextInt(size);
+            int to = random.nextInt(size);
+            if (from < to)
+                edges.add(order.get(from) + "" + order.get(to));
+        }
+
+        List<String> lines = new ArrayList<>(edges);
+        Collections.shuffle(lines, random);
+        for (String edge : lines) {
+            out.printf("Step %c must be finished before step %c can begin.\n", edge.charAt(0), edge.charAt(1));
+        }
+    }
+
+    // Day 8: the license tree as one line of numbers: each node's child count, metadata count, children and
+    // metadata entries. The tree is a random recursive tree (each new node picks a random earlier node as its
+    // parent), which keeps it about logarithmically deep so the recursive solver can walk it. Metadata entries
+    // are 1 to 9, so some of them refer to children in part 2 and some do not.
+    private static void generateLicense(Random random, int size, PrintWriter out) {
+        final int maxMetadata = 3;
+
+        int[] parent = new int[size];
+        int[] childCount = new int[size];
+        for (int node = 1; node < size; node++) {
+            parent[node] = random.nextInt(node);
+            childCount[parent[node]]++;
+        }
+
+        // Lay out the children of each node contiguously, in increasing order.
+        int[] firstChild = new int[size + 1];
+        for (int node = 0; node < size; node++) {
+            firstChild[node + 1] = firstChild[node] + childCount[node];
+        }
+        int[] children = new int[Math.max(0, size - 1)];
+        int[] filled = new int[size];
+        for (int node = 1; node < size; node++) {
+            children[firstChild[parent[node]] + filled[parent[node]]++] = node;
+        }
+
+        // Write the tree depth-first without recursion: a node's header is written when it is first visited and
+        // its metadata once all of its children are done.
+        int[] metadataCount = new int[size];
+        int[] stackNode = new int[size];
+        int[] stackNextChild = new int[size];
+        int depth = 0;
+        stackNextChild[0] = -1;
+        boolean first = true;
+
+        while (depth >= 0) {
+            int node = stackNode[depth];
+
+            if (stackNextChild[depth] < 0) {
+                metadataCount[node] = 1 + random.nextInt(maxMetadata);
+                first = writeNumber(childCount[node], first, out);
+                first = writeNumber(metadataCount[node], first, out);
+                stackNextChild[depth] = 0;
+            }
+
+            int next = stackNextChild[depth];
+            if (next < childCount[node]) {
+                stackNextChild[depth]++;
+                depth++;
+                stackNode[depth] = children[firstChild[node] + next];
+                stackNextChild[depth] = -1;
+            } else {
+                for (int i = 0; i < metadataCount[node]; i++) {
+                    first = writeNumber(1 + random.nextInt(9), first, out);
+                }
+                depth--;
+            }
+        }
+
+        out.print('\n');
+    }
+
+    private static boolean writeNumber(int number, boolean first, PrintWriter out) {
+        if (!first)
+            out.print(' ');
+        out.print(number);
+        return false;
+    }
+
+    // Day 9: "N players; last marble is worth M points", with the size as the last marble.
+    private static void generateMarbleGame(Random random, int size, PrintWriter out) {
+        int numPlayers = 2 + random.nextInt(499);
+        out.printf("%d players; last marble is worth %d points\n", numPlayers, size);
+    }
+
+    // Day 10: "position=<x, y> velocity=<vx, vy>" lights that spell a random message at a random time of about
+    // 10,000 seconds. Every pixel of the message gets at least one light, and the remaining lights are spread
+    // over random pixels, so the message is about one letter per 30 lights. Each light's starting position is its
+    // pixel moved back along its velocity, so part 2's answer is the chosen time.
+    private static void generateLights(Random random, int size, PrintWriter out) {
+        final int maxSpeed = 5;
+
+        List<Character> alphabet = new ArrayList<>(Day10_Stars_Align.GlyphRecognizer.letters());
+        int letters = Math.max(1, size / 30);
+        int glyphWidth = Day10_Stars_Align.GlyphRecognizer.GLYPH_WIDTH;
+        int glyphHeight = Day10_Stars_Align.GlyphRecognizer.GLYPH_HEIGHT;
+        int glyphStride = glyphWidth + Day10_Stars_Align.GlyphRecognizer.GLYPH_SPACING;
+
+        List<int[]> pixels = new ArrayList<>();
+        for (int i = 0; i < letters; i++) {
+            char letter = alphabet.get(random.nextInt(alphabet.size()));
+            for (int y = 0; y < glyphHeight; y++) {
+                for (int x = 0; x < glyphWidth; x++) {
+                    if (Day10_Stars_Align.GlyphRecognizer.isSet(letter, x, y))
+                        pixels.add(new int[] { i * glyphStride + x, y });
+                }
+            }
+        }
+
+        int time = 10_000 + random.nextInt(1_000);
+        int originX = random.nextInt(400) - 200;
+        int originY = random.nextInt(400) - 200;
+
+        int lights = Math.max(size, pixels.size());
+        List<String> lines = new ArrayList<>(lights);
+        for (int i = 0; i < lights; i++) {
+            int[] pixel = i < pixels.size() ? pixels.get(i) : pixels.get(random.nextInt(pixels.size()));
+
+            int vx = random.nextInt(2 * maxSpeed + 1) - maxSpeed;
+            int vy;
+            do {
+                vy = random.nextInt(2 * maxSpeed + 1) - maxSpeed;
+            } while (vy == 0);
+
+            int x = originX + pixel[0] - vx * time;
+            int y = originY + pixel[1] - vy * time;
+            lines.add(String.format("position=<%6d, %6d> velocity=<%2d, %2d>", x, y, vx, vy));
+        }
+
+        Collections.shuffle(lines, random);
+        for (String line : lines) {
+            out.print(line);
+            out.print('\n');
+        }
+    }
+}
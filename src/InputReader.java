@@ -0,0 +1,196 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+// Line and integer reader shared by the days' parsers. The whole input file is memory-mapped with FileChannel.map
+// and read in place as ASCII, so reading a line does not copy it or create a String: the current line is exposed
+// as a CharSequence view over the mapped bytes, and integers are parsed directly from the bytes.
+//
+// Typical use, for a line such as "#1 @ 469,741: 22x26":
+//
+//     try (InputReader reader = new InputReader(file)) {
+//         while (reader.nextLine()) {
+//             int id = reader.nextInt();
+//             int left = reader.nextInt();
+//             ...
+//         }
+//     }
+//
+// Within the current line, a cursor moves forward as integers are read, starting at the beginning of the line.
+// Positions passed to the methods taking an offset are relative to the start of the current line.
+// Files are limited to 2 GB, the most a single mapping can hold.
+public class InputReader implements AutoCloseable {
+    private final MappedByteBuffer buffer;
+    private final int limit;
+
+    private int lineStart;
+    private int lineEnd;
+    private int nextLineStart;
+    private int cursor;
+
+    private final Line line = new Line();
+
+    public InputReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Input file is too large to map: " + file + " (" + size + " bytes)");
+
+            // The mapping stays valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            limit = (int) size;
+        }
+    }
+
+    // Moves to the next line, returning false if there are no lines left. A line ends at "\n" or "\r\n", and
+    // the last line does not need a line break after it.
+    public boolean nextLine() {
+        if (nextLineStart >= limit)
+            return false;
+
+        lineStart = nextLineStart;
+        int end = lineStart;
+        while (end < limit && buffer.get(end) != '\n') {
+            end++;
+        }
+        nextLineStart = end + 1;
+        if (end > lineStart && buffer.get(end - 1) == '\r')
+            end--;
+
+        lineEnd = end;
+        cursor = lineStart;
+        return true;
+    }
+
+    // Returns the current line as a view over the mapped file. The view is reused, so it is only valid until the
+    // next call to nextLine(); call toString() on it to keep the line.
+    public CharSequence line() {
+        return line;
+    }
+
+    // Returns the current line as a String, for solvers that keep the text of each line.
+    public String lineString() {
+        byte[] bytes = new byte[lineEnd - lineStart];
+        buffer.get(lineStart, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    public int lineLength() {
+        return lineEnd - lineStart;
+    }
+
+    public char charAt(int offset) {
+        return (char) (buffer.get(lineStart + offset) & 0xFF);
+    }
+
+    // Returns the offset of the first occurrence of the character in the current line, or -1 if there is none.
+    public int indexOf(char c) {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer.get(i) == c)
+                return i - lineStart;
+        }
+        return -1;
+    }
+
+    // Moves the cursor to the given offset in the current line.
+    public void seek(int offset) {
+        cursor = lineStart + offset;
+    }
+
+    // Returns whether there is another integer after the cursor in the current line.
+    public boolean hasNextInt() {
+        return findNumber() < lineEnd;
+    }
+
+    // Reads the next integer after the cursor in the current line, skipping any characters before it. A '-' or '+'
+    // directly before the digits is its sign. Throws NumberFormatException if the line has no integer left.
+    public int nextInt() {
+        long value = nextLong();
+        if (value != (int) value)
+            throw new NumberFormatException("Integer out of range: " + value);
+        return (int) value;
+    }
+
+    // Reads the next integer after the cursor as a long, as nextInt() does.
+    public long nextLong() {
+        int start = findNumber();
+        if (start >= lineEnd)
+            throw new NumberFormatException("No integer left in line: " + line);
+
+        boolean negative = false;
+        int i = start;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+
+        long value = 0;
+        while (i < lineEnd && isDigit(b = buffer.get(i))) {
+            value = value * 10 + (b - '0');
+            i++;
+        }
+
+        cursor = i;
+        return negative ? -value : value;
+    }
+
+    // Parses the digits between the two offsets of the current line as a non-negative integer, for fields at
+    // fixed positions whose neighbours could be mistaken for a sign, such as the parts of a date.
+    public int parseInt(int startOffset, int endOffset) {
+        int value = 0;
+        for (int i = lineStart + startOffset; i < lineStart + endOffset; i++) {
+            byte b = buffer.get(i);
+            if (!isDigit(b))
+                throw new NumberFormatException("Not a digit at offset " + (i - lineStart) + " of line: " + line);
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    // Returns the position of the next integer after the cursor: its first digit, or the sign right before it.
+    // Returns lineEnd if there is none.
+    private int findNumber() {
+        for (int i = cursor; i < lineEnd; i++) {
+            byte b = buffer.get(i);
+            if (isDigit(b))
+                return i;
+            if ((b == '-' || b == '+') && i + 1 < lineEnd && isDigit(buffer.get(i + 1)))
+                return i;
+        }
+        return lineEnd;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // Nothing needs to be released: the channel is closed as soon as the file is mapped, and the mapping is freed
+    // once it is no longer reachable. Implemented so parsers can keep using try-with-resources.
+    public void close() {
+    }
+
+    // View of the current line as a CharSequence.
+    private class Line implements CharSequence {
+        public int length() {
+            return lineEnd - lineStart;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length())
+                throw new IndexOutOfBoundsException(index);
+            return (char) (buffer.get(lineStart + index) & 0xFF);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        public String toString() {
+            return lineString();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+// Histogram of latencies in nanoseconds that many threads can record into at once, for reporting percentiles.
+// Values are counted in log-linear buckets: each power of two is split into SUB_BUCKETS equal buckets, so a
+// reported percentile is at most 1/SUB_BUCKETS (about 3%) above the true value, whatever its magnitude. Recording
+// is one atomic increment, and the histogram takes a fixed few kilobytes however many values it holds.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // Records one latency. Negative values are counted as zero.
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        max.accumulate(value);
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // Returns the latency at the given percentile (0 to 100): the upper end of the bucket holding it, but never more
+    // than the largest value recorded. Returns 0 if nothing was recorded.
+    public long percentile(double percentile) {
+        long total = count();
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(bucketUpperBound(i), max());
+        }
+        return max();
+    }
+
+    // Returns the usual summary of percentiles, in microseconds.
+    public String summary() {
+        return String.format("count=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count(), percentile(50) / 1e3, percentile(90) / 1e3, percentile(99) / 1e3, percentile(99.9) / 1e3, max() / 1e3);
+    }
+
+    // Values below SUB_BUCKETS get a bucket each. Above that, a value whose highest set bit is bit b falls in the
+    // group for b, split on the SUB_BUCKET_BITS bits below its highest one.
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int group = shift + 1;
+        return group * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int group = bucket / SUB_BUCKETS;
+        int shift = group - 1;
+        long lower = ((long) SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
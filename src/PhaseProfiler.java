@@ -0,0 +1,167 @@
+import jdk.jfr.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+// Lightweight instrumentation of the phases of a puzzle: parsing, solving each part, and any steps inside them
+// worth measuring on their own, such as Day 4's sort or Day 7's graph build. A phase is measured by beginning it
+// and closing it in a finally block:
+//
+//     PhaseProfiler.Phase phase = PhaseProfiler.begin("sort");
+//     try {
+//         Collections.sort(records);
+//     } finally {
+//         phase.close();
+//     }
+//
+// Each phase measures wall time, CPU time and bytes allocated by the calling thread. Phases opened inside another
+// phase on the same thread are nested under it, so the sort above is reported as e.g. "Day4_Repose_Record/parse/sort".
+// Measurements are reported in two ways, and a phase costs next to nothing when neither is turned on:
+//   - When recording is turned on (PuzzleRunner --phases), each finished phase is kept, and all of them can be
+//     written out as JSON.
+//   - When a Java Flight Recorder recording is running (e.g. -XX:StartFlightRecording=filename=phases.jfr),
+//     each finished phase is committed as an "adventofcode.Phase" event.
+public class PhaseProfiler {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Shared phase returned when nothing would see the measurements.
+    private static final Phase DISABLED = new Phase(null, null);
+
+    // Used to check whether a Flight Recorder recording wants phase events without creating one.
+    private static final EventType PHASE_EVENT_TYPE = EventType.getEventType(PhaseEvent.class);
+
+    private static volatile boolean recording;
+    private static final List<PhaseRecord> RECORDS = Collections.synchronizedList(new ArrayList<>());
+
+    // Name of the innermost open phase of each thread, used as the prefix of the phases nested in it.
+    private static final ThreadLocal<String> CURRENT_PATH = new ThreadLocal<>();
+
+    // Starts measuring a phase with the given name. The phase ends when the returned Phase is closed.
+    public static Phase begin(String name) {
+        if (!recording && !PHASE_EVENT_TYPE.isEnabled())
+            return DISABLED;
+
+        String parent = CURRENT_PATH.get();
+        String path = parent == null ? name : parent + "/" + name;
+        CURRENT_PATH.set(path);
+
+        Phase phase = new Phase(path, parent);
+        phase.event = new PhaseEvent();
+        phase.event.begin();
+        phase.start();
+        return phase;
+    }
+
+    // Turns keeping finished phases on or off.
+    public static void setRecording(boolean enabled) {
+        recording = enabled;
+    }
+
+    // Returns the phases finished while recording, in the order they finished.
+    public static List<PhaseRecord> records() {
+        synchronized (RECORDS) {
+            return new ArrayList<>(RECORDS);
+        }
+    }
+
+    public static void clear() {
+        RECORDS.clear();
+    }
+
+    // Returns the phases finished while recording as a JSON array with one object per phase.
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("[");
+        List<PhaseRecord> records = records();
+        for (int i = 0; i < records.size(); i++) {
+            PhaseRecord record = records.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("  {\"phase\": \"").append(record.name.replace("\\", "\\\\").replace("\"", "\\\"")).append('"')
+                    .append(", \"wallNanos\": ").append(record.wallNanos)
+                    .append(", \"cpuNanos\": ").append(record.cpuNanos)
+                    .append(", \"allocatedBytes\": ").append(record.allocatedBytes)
+                    .append('}');
+        }
+        return sb.append(records.isEmpty() ? "]" : "\n]").toString();
+    }
+
+    // An open phase. Closing it ends the measurement and reports it.
+    static class Phase implements AutoCloseable {
+        String name;
+        String parent;
+        PhaseEvent event;
+        long startWallNanos;
+        long startCpuNanos;
+        long startAllocatedBytes;
+
+        public Phase(String name, String parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        private void start() {
+            startAllocatedBytes = THREADS.getCurrentThreadAllocatedBytes();
+            startCpuNanos = THREADS.getCurrentThreadCpuTime();
+            startWallNanos = System.nanoTime();
+        }
+
+        public void close() {
+            if (this == DISABLED)
+                return;
+
+            long wallNanos = System.nanoTime() - startWallNanos;
+            long cpuNanos = THREADS.getCurrentThreadCpuTime() - startCpuNanos;
+            long allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+
+            CURRENT_PATH.set(parent);
+
+            if (recording)
+                RECORDS.add(new PhaseRecord(name, wallNanos, cpuNanos, allocatedBytes));
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.cpuTime = cpuNanos;
+                event.allocated = allocatedBytes;
+                event.commit();
+            }
+        }
+    }
+
+    // Class holding the measurements of one finished phase.
+    static class PhaseRecord {
+        String name;
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+
+        public PhaseRecord(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String toString() {
+            return String.format("%s: %.3f ms wall, %.3f ms CPU, %d bytes allocated", name, wallNanos / 1e6, cpuNanos / 1e6, allocatedBytes);
+        }
+    }
+
+    // Flight Recorder event for one finished phase. Its duration is the phase's wall time.
+    @Name("adventofcode.Phase")
+    @Label("Puzzle Phase")
+    @Category("Advent of Code")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpuTime;
+
+        @Label("Allocated")
+        @DataAmount(DataAmount.BYTES)
+        long allocated;
+    }
+}
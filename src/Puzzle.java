@@ -0,0 +1,19 @@
+import java.io.File;
+import java.io.IOException;
+
+// Common contract for a day's puzzle. Parsing is kept apart from solving, so the input can be parsed once and
+// then solved as many times as needed (e.g. when timing repeated runs in one JVM). solvePart1 and solvePart2
+// must not modify the parsed input; a day whose algorithm mutates its input works on a copy.
+public interface Puzzle<T> {
+    // Returns the path of the day's puzzle input, or null if the day has no input file.
+    String inputPath();
+
+    // Reads the given input file into the day's input model. The file is null for days without an input file.
+    T parse(File file) throws IOException;
+
+    // Returns the answer to part 1 for the parsed input.
+    Object solvePart1(T input);
+
+    // Returns the answer to part 2 for the parsed input.
+    Object solvePart2(T input);
+}
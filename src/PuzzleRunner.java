@@ -0,0 +1,157 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+// Registry of all the days' puzzles and a launcher that runs any subset of them in one JVM.
+// Usage: PuzzleRunner [--repeat=N] [--phases] [day...]
+// With no days given, every registered day is run. With --repeat=N, each day's input is parsed once and both
+// parts are solved N times on it, so later runs are measured after the JIT has warmed up; the answers are printed
+// once along with the fastest time of each part. With --phases, the time and allocations of every phase measured
+// by PhaseProfiler are printed as JSON once all days have run.
+public class PuzzleRunner {
+    private static final Map<Integer, Puzzle<?>> PUZZLES = new TreeMap<>();
+
+    static {
+        PUZZLES.put(1, new Day1_Chronal_Calibration());
+        PUZZLES.put(2, new Day2_Inventory_Management_System());
+        PUZZLES.put(3, new Day3_No_Matter_How_You_Slice_It());
+        PUZZLES.put(4, new Day4_Repose_Record());
+        PUZZLES.put(5, new Day5_Alchemical_Reduction());
+        PUZZLES.put(6, new Day6_Chronal_Coordinates());
+        PUZZLES.put(7, new Day7_Sum_of_its_Parts());
+        PUZZLES.put(8, new Day8_Memory_Maneuver());
+        PUZZLES.put(9, new Day9_Marble_Mania());
+        PUZZLES.put(10, new Day10_Stars_Align());
+        PUZZLES.put(11, new Day11_Chronal_Charge());
+    }
+
+    public static void main(String[] args) {
+        int repeat = 1;
+        boolean phases = false;
+        List<Integer> days = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--repeat=")) {
+                repeat = Integer.parseInt(arg.substring("--repeat=".length()));
+            } else if (arg.equals("--phases")) {
+                phases = true;
+            } else {
+                days.add(Integer.parseInt(arg));
+            }
+        }
+
+        if (days.isEmpty())
+            days.addAll(PUZZLES.keySet());
+
+        PhaseProfiler.setRecording(phases);
+
+        for (int day : days) {
+            Puzzle<?> puzzle = puzzle(day);
+            System.out.println("Day " + day + ":");
+            if (repeat == 1) {
+                run(puzzle);
+            } else {
+                runRepeated(puzzle, repeat);
+            }
+        }
+
+        if (phases)
+            System.out.println(PhaseProfiler.toJson());
+    }
+
+    // Returns the registered puzzle for the given day.
+    static Puzzle<?> puzzle(int day) {
+        Puzzle<?> puzzle = PUZZLES.get(day);
+        if (puzzle == null)
+            throw new IllegalArgumentException("No puzzle registered for day " + day);
+        return puzzle;
+    }
+
+    // Returns the days that have a registered puzzle, in order.
+    static Set<Integer> days() {
+        return Collections.unmodifiableSet(PUZZLES.keySet());
+    }
+
+    // Parses the puzzle's input file, or returns null when the puzzle has none.
+    static <T> T parseInput(Puzzle<T> puzzle) throws IOException {
+        String path = puzzle.inputPath();
+        PhaseProfiler.Phase phase = PhaseProfiler.begin("parse");
+        try {
+            return puzzle.parse(path != null ? new File(path) : null);
+        } finally {
+            phase.close();
+        }
+    }
+
+    // Solves part 1 of the puzzle, measured as its own phase.
+    static <T> Object solvePart1(Puzzle<T> puzzle, T input) {
+        PhaseProfiler.Phase phase = PhaseProfiler.begin("part1");
+        try {
+            return puzzle.solvePart1(input);
+        } finally {
+            phase.close();
+        }
+    }
+
+    // Solves part 2 of the puzzle, measured as its own phase.
+    static <T> Object solvePart2(Puzzle<T> puzzle, T input) {
+        PhaseProfiler.Phase phase = PhaseProfiler.begin("part2");
+        try {
+            return puzzle.solvePart2(input);
+        } finally {
+            phase.close();
+        }
+    }
+
+    // Parses the puzzle's input and prints the answers to both parts.
+    static <T> void run(Puzzle<T> puzzle) {
+        PhaseProfiler.Phase phase = PhaseProfiler.begin(puzzle.getClass().getSimpleName());
+        try {
+            T input = parseInput(puzzle);
+
+            Object part1 = solvePart1(puzzle, input);
+            System.out.println("Part 1 is: " + part1);
+
+            Object part2 = solvePart2(puzzle, input);
+            System.out.println("Part 2 is: " + part2);
+
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        } finally {
+            phase.close();
+        }
+    }
+
+    // Parses the puzzle's input once, then solves both parts the given number of times on it.
+    // Prints the answers of the last run and the fastest time of each part.
+    static <T> void runRepeated(Puzzle<T> puzzle, int repeat) {
+        PhaseProfiler.Phase phase = PhaseProfiler.begin(puzzle.getClass().getSimpleName());
+        try {
+            T input = parseInput(puzzle);
+
+            Object part1 = null;
+            Object part2 = null;
+            long fastestPart1 = Long.MAX_VALUE;
+            long fastestPart2 = Long.MAX_VALUE;
+
+            for (int i = 0; i < repeat; i++) {
+                long start = System.nanoTime();
+                part1 = solvePart1(puzzle, input);
+                long middle = System.nanoTime();
+                part2 = solvePart2(puzzle, input);
+                long end = System.nanoTime();
+
+                fastestPart1 = Math.min(fastestPart1, middle - start);
+                fastestPart2 = Math.min(fastestPart2, end - middle);
+            }
+
+            System.out.printf("Part 1 is: %s (fastest of %d runs: %.3f ms)%n", part1, repeat, fastestPart1 / 1e6);
+            System.out.printf("Part 2 is: %s (fastest of %d runs: %.3f ms)%n", part2, repeat, fastestPart2 / 1e6);
+
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        } finally {
+            phase.close();
+        }
+    }
+}
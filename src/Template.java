@@ -2,26 +2,31 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
-public class Template {
+public class Template implements Puzzle<List<String>> {
     public static void main(String[] args) {
-        File file = new File("./inputs/dayX/dayX.example.txt");
+        PuzzleRunner.run(new Template());
+    }
 
-        try {
-            Scanner sc = new Scanner(file);
+    public String inputPath() {
+        return "./inputs/dayX/dayX.example.txt";
+    }
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
+    public List<String> parse(File file) throws IOException {
+        try (InputReader reader = new InputReader(file)) {
+            List<String> lines = new ArrayList<>();
+            while (reader.nextLine()) {
+                lines.add(reader.lineString());
             }
+            return lines;
+        }
+    }
 
-            int part1 = part1();
-            System.out.println("Part 1 is: " + part1);
-
-            int part2 = part2();
-            System.out.println("Part 2 is: " + part2);
+    public Object solvePart1(List<String> lines) {
+        return part1();
+    }
 
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    public Object solvePart2(List<String> lines) {
+        return part2();
     }
 
     // Part 1:
@@ -0,0 +1,205 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Day11_Chronal_ChargeTest {
+    @Test
+    void powerLevelsOfTheExamples() {
+        assertEquals(4, Day11_Chronal_Charge.calculateFuelCellPowerLevel(3, 5, 8));
+        assertEquals(-5, Day11_Chronal_Charge.calculateFuelCellPowerLevel(122, 79, 57));
+        assertEquals(0, Day11_Chronal_Charge.calculateFuelCellPowerLevel(217, 196, 39));
+        assertEquals(4, Day11_Chronal_Charge.calculateFuelCellPowerLevel(101, 153, 71));
+    }
+
+    // (x + 10)^2 * y is past 2^31 at these coordinates, so the power level is only right if it is computed without
+    // overflowing an int.
+    @Test
+    void powerLevelsOnLargeGrids() {
+        assertEquals(3, Day11_Chronal_Charge.calculateFuelCellPowerLevel(1500, 1400, 7139));
+        assertEquals(-4, Day11_Chronal_Charge.calculateFuelCellPowerLevel(10000, 10000, 18));
+        assertEquals(-3, Day11_Chronal_Charge.calculateFuelCellPowerLevel(9999, 9876, 5034));
+
+        for (int x = 9900; x <= 10000; x += 7) {
+            for (int y = 9900; y <= 10000; y += 11) {
+                assertEquals(powerLevel(x, y, 7139), Day11_Chronal_Charge.calculateFuelCellPowerLevel(x, y, 7139));
+            }
+        }
+    }
+
+    // The power level as the puzzle defines it, computed with unbounded integers.
+    private static int powerLevel(int x, int y, int serialNumber) {
+        BigInteger rackId = BigInteger.valueOf(x + 10);
+        BigInteger product = rackId.multiply(BigInteger.valueOf(y)).add(BigInteger.valueOf(serialNumber)).multiply(rackId);
+        return product.divide(BigInteger.valueOf(100)).mod(BigInteger.TEN).intValue() - 5;
+    }
+
+    @Test
+    void prunedSearchFindsTheSameSquareAsTheExhaustiveScan() {
+        for (int serialNumber : new int[] { 18, 42, 8141 }) {
+            assertPrunedMatches(serialNumber, 300, 300, 1, 300);
+        }
+
+        // Sizes 1 and 2 have many squares tied for the best power level, so these check the tie breaking.
+        assertPrunedMatches(8141, 300, 300, 1, 1);
+        assertPrunedMatches(8141, 300, 300, 1, 2);
+        assertPrunedMatches(18, 300, 300, 250, 300);
+
+        Random random = new Random(34);
+        for (int trial = 0; trial < 300; trial++) {
+            int width = 1 + random.nextInt(80);
+            int height = 1 + random.nextInt(80);
+            int maxSize = 1 + random.nextInt(Math.min(width, height));
+            int minSize = 1 + random.nextInt(maxSize);
+            assertPrunedMatches(random.nextInt(10000), width, height, minSize, maxSize);
+        }
+    }
+
+    // The parallel search splits the sizes and rows across fork-join tasks and reduces their best squares with
+    // betterSquare, which must pick the same square as the sequential scan when several have the best power level.
+    @Test
+    void parallelSearchBreaksTiesLikeTheSequentialScan() {
+        for (int serialNumber : new int[] { 18, 42, 8141 }) {
+            assertParallelMatches(serialNumber, 300, 300, 1, 300);
+            // Size 1 alone is split by rows, and sizes 1 to 4 by size, with many tied squares either way.
+            assertParallelMatches(serialNumber, 300, 300, 1, 1);
+            assertParallelMatches(serialNumber, 300, 300, 1, 4);
+        }
+
+        Random random = new Random(31);
+        for (int trial = 0; trial < 100; trial++) {
+            int width = 1 + random.nextInt(400);
+            int height = 1 + random.nextInt(400);
+            int maxSize = 1 + random.nextInt(Math.min(Math.min(width, height), 8));
+            int minSize = 1 + random.nextInt(maxSize);
+            assertParallelMatches(random.nextInt(10000), width, height, minSize, maxSize);
+        }
+    }
+
+    @Test
+    void topSquaresAndSquaresAboveAThresholdMatchSortingEverySquare() {
+        // Small sizes on the puzzle's grid, with many squares tied at the k-th power level and at the threshold.
+        assertTopSquaresMatch(8141, 300, 300, 1, 3, new Random(35));
+
+        Random random = new Random(35);
+        for (int trial = 0; trial < 100; trial++) {
+            int width = 1 + random.nextInt(40);
+            int height = 1 + random.nextInt(40);
+            int maxSize = 1 + random.nextInt(Math.min(width, height));
+            int minSize = 1 + random.nextInt(maxSize);
+            assertTopSquaresMatch(random.nextInt(10000), width, height, minSize, maxSize, random);
+        }
+    }
+
+    // Sorts every square best first, ties in the sequential scan order, and checks findTopSquares against a prefix
+    // of the sorted squares and forEachSquareAbove against the squares above a power level taken from them.
+    private static void assertTopSquaresMatch(int serialNumber, int width, int height, int minSize, int maxSize,
+                                              Random random) {
+        List<Day11_Chronal_Charge.FuelCellSquare> squares = allSquares(serialNumber, width, height, minSize, maxSize);
+        squares.sort(Comparator.comparingInt((Day11_Chronal_Charge.FuelCellSquare square) -> -square.powerLevel)
+                .thenComparingInt(square -> square.size)
+                .thenComparingInt(square -> square.point.y)
+                .thenComparingInt(square -> square.point.x));
+        String grid = "serial " + serialNumber + ", " + width + "x" + height + ", sizes [" + minSize + ", " + maxSize + "]";
+
+        for (int k : new int[] { 1, 1 + random.nextInt(squares.size()), squares.size(), squares.size() + 5 }) {
+            List<String> expected = new ArrayList<>();
+            for (Day11_Chronal_Charge.FuelCellSquare square : squares.subList(0, Math.min(k, squares.size()))) {
+                expected.add(square.toString());
+            }
+            List<String> actual = new ArrayList<>();
+            for (Day11_Chronal_Charge.FuelCellSquare square :
+                    Day11_Chronal_Charge.findTopSquares(serialNumber, width, height, minSize, maxSize, k)) {
+                actual.add(square.toString());
+            }
+            assertEquals(expected, actual, grid + ", k = " + k);
+        }
+
+        int threshold = squares.get(random.nextInt(squares.size())).powerLevel;
+        for (int t : new int[] { threshold, threshold - 1, squares.get(0).powerLevel }) {
+            Set<String> expected = new HashSet<>();
+            for (Day11_Chronal_Charge.FuelCellSquare square : squares) {
+                if (square.powerLevel > t)
+                    expected.add(square.toString());
+            }
+            List<String> actual = Collections.synchronizedList(new ArrayList<>());
+            Day11_Chronal_Charge.forEachSquareAbove(serialNumber, width, height, minSize, maxSize, t,
+                    square -> actual.add(square.toString()));
+            assertEquals(expected.size(), actual.size(), grid + ", threshold " + t);
+            assertEquals(expected, new HashSet<>(actual), grid + ", threshold " + t);
+        }
+    }
+
+    // Every square with a size in [minSize, maxSize], with its power level summed cell by cell.
+    private static List<Day11_Chronal_Charge.FuelCellSquare> allSquares(int serialNumber, int width, int height,
+                                                                       int minSize, int maxSize) {
+        int[][] power = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                power[y][x] = Day11_Chronal_Charge.calculateFuelCellPowerLevel(x, y, serialNumber);
+            }
+        }
+
+        List<Day11_Chronal_Charge.FuelCellSquare> squares = new ArrayList<>();
+        for (int size = minSize; size <= maxSize; size++) {
+            for (int y = 0; y + size <= height; y++) {
+                for (int x = 0; x + size <= width; x++) {
+                    int sum = 0;
+                    for (int j = y; j < y + size; j++) {
+                        for (int i = x; i < x + size; i++) {
+                            sum += power[j][i];
+                        }
+                    }
+                    squares.add(new Day11_Chronal_Charge.FuelCellSquare(new Point(x, y), sum, size));
+                }
+            }
+        }
+        return squares;
+    }
+
+    @Test
+    void batchOfBoardsMatchesScanningEachBoard() {
+        Random random = new Random(33);
+        for (int trial = 0; trial < 10; trial++) {
+            int width = 1 + random.nextInt(150);
+            int height = 1 + random.nextInt(150);
+            int maxSize = 1 + random.nextInt(Math.min(width, height));
+            int minSize = 1 + random.nextInt(maxSize);
+            int[] serialNumbers = random.ints(1 + random.nextInt(40), 0, 10000).toArray();
+
+            Day11_Chronal_Charge.FuelCellSquare[] results =
+                    Day11_Chronal_Charge.evaluateBoards(serialNumbers, width, height, minSize, maxSize);
+            for (int i = 0; i < serialNumbers.length; i++) {
+                assertEquals(Day11_Chronal_Charge.part2WithSummedAreaTable(serialNumbers[i], width, height, minSize, maxSize)
+                        .toString(), results[i].toString(), "serial " + serialNumbers[i]);
+            }
+        }
+    }
+
+    private static void assertParallelMatches(int serialNumber, int width, int height, int minSize, int maxSize) {
+        Day11_Chronal_Charge.FuelCellSquare expected =
+                Day11_Chronal_Charge.part2WithSummedAreaTable(serialNumber, width, height, minSize, maxSize);
+        Day11_Chronal_Charge.FuelCellSquare actual =
+                Day11_Chronal_Charge.findMaxSquare(serialNumber, width, height, minSize, maxSize);
+        assertEquals(expected.toString(), actual.toString(),
+                "serial " + serialNumber + ", " + width + "x" + height + ", sizes [" + minSize + ", " + maxSize + "]");
+    }
+
+    private static void assertPrunedMatches(int serialNumber, int width, int height, int minSize, int maxSize) {
+        Day11_Chronal_Charge.FuelCellSquare expected =
+                Day11_Chronal_Charge.part2WithSummedAreaTable(serialNumber, width, height, minSize, maxSize);
+        Day11_Chronal_Charge.PrunedSearchResult result =
+                Day11_Chronal_Charge.findMaxSquarePruned(serialNumber, width, height, minSize, maxSize);
+        assertEquals(expected.toString(), result.square.toString(),
+                "serial " + serialNumber + ", " + width + "x" + height + ", sizes [" + minSize + ", " + maxSize + "]");
+
+        long squares = 0;
+        for (int size = minSize; size <= maxSize; size++) {
+            squares += (long) (width - size + 1) * (height - size + 1);
+        }
+        assertEquals(squares, result.candidatesPruned + result.candidatesExamined);
+    }
+}
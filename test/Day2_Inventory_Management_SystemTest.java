@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class Day2_Inventory_Management_SystemTest {
+    @Test
+    void packedSearchMatchesPart2OnRandomIds() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 300; trial++) {
+            // Few letters and short IDs, so that some pairs differ by one character and some lists have none.
+            int letters = 2 + random.nextInt(4);
+            int minLength = random.nextInt(12);
+            int maxLength = minLength + random.nextInt(4);
+            char firstLetter = random.nextInt(5) == 0 ? '\u0430' : 'a';
+            List<String> boxes = new ArrayList<>();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                boxes.add(randomId(random, minLength + random.nextInt(maxLength - minLength + 1), firstLetter, letters));
+            }
+
+            assertEquals(Day2_Inventory_Management_System.part2(boxes), Day2_Inventory_Management_System.part2Packed(boxes),
+                    boxes.toString());
+        }
+    }
+
+    @Test
+    void packedSearchMatchesPart2OnPlantedPairs() {
+        Random random = new Random(43);
+        for (int trial = 0; trial < 100; trial++) {
+            // Lists spanning several tiles, with IDs that all differ in many places except for the planted pairs.
+            int length = 1 + random.nextInt(40);
+            List<String> boxes = new ArrayList<>();
+            for (int i = 100 + random.nextInt(900); i > 0; i--) {
+                boxes.add(randomId(random, length, 'a', 26));
+            }
+
+            for (int pairs = random.nextInt(4); pairs > 0; pairs--) {
+                char[] id = boxes.get(random.nextInt(boxes.size())).toCharArray();
+                int position = random.nextInt(length);
+                id[position] = id[position] == 'z' ? 'a' : (char) (id[position] + 1);
+                boxes.add(random.nextInt(boxes.size() + 1), new String(id));
+            }
+
+            assertEquals(Day2_Inventory_Management_System.part2(boxes), Day2_Inventory_Management_System.part2Packed(boxes));
+        }
+    }
+
+    @Test
+    void indexLookupMatchesABruteForceScan() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 200; trial++) {
+            // Lengths from 0 up, so some IDs are shorter than the number of segments, and few letters, so that
+            // random IDs are often within the distance of each other and often repeat.
+            int maxDistance = random.nextInt(4);
+            List<String> boxes = new ArrayList<>();
+            for (int i = random.nextInt(60); i > 0; i--) {
+                boxes.add(randomId(random, random.nextInt(8), 'a', 2 + random.nextInt(3)));
+            }
+            if (!boxes.isEmpty())
+                boxes.add(boxes.get(random.nextInt(boxes.size())));
+
+            Day2_Inventory_Management_System.BoxIdIndex index = new Day2_Inventory_Management_System.BoxIdIndex(maxDistance, boxes);
+            assertEquals(new HashSet<>(boxes).size(), index.size());
+            if (!boxes.isEmpty())
+                assertFalse(index.insert(boxes.get(0)));
+
+            for (int query = 0; query < 30; query++) {
+                String id = random.nextBoolean() && !boxes.isEmpty()
+                        ? boxes.get(random.nextInt(boxes.size()))
+                        : randomId(random, random.nextInt(8), 'a', 4);
+                for (int distance = 0; distance <= maxDistance; distance++) {
+                    assertEquals(bruteForceLookup(boxes, id, distance), index.lookup(id, distance),
+                            id + " within " + distance + " of " + boxes);
+                }
+            }
+        }
+    }
+
+    // The IDs among the boxes within the given Hamming distance of the ID, found by checking every box.
+    private static Set<String> bruteForceLookup(List<String> boxes, String id, int distance) {
+        Set<String> matches = new TreeSet<>();
+        for (String box : boxes) {
+            if (box.length() != id.length())
+                continue;
+
+            int differences = 0;
+            for (int i = 0; i < box.length(); i++) {
+                if (box.charAt(i) != id.charAt(i))
+                    differences++;
+            }
+            if (differences <= distance)
+                matches.add(box);
+        }
+        return matches;
+    }
+
+    private static String randomId(Random random, int length, char firstLetter, int letters) {
+        char[] id = new char[length];
+        for (int i = 0; i < length; i++) {
+            id[i] = (char) (firstLetter + random.nextInt(letters));
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Day3_No_Matter_How_You_Slice_ItTest {
+    @Test
+    void stripedPaintMatchesPart1AndPart2() throws IOException {
+        Day3_No_Matter_How_You_Slice_It puzzle = new Day3_No_Matter_How_You_Slice_It();
+        assertStripedMatches(puzzle.parse(new File(puzzle.inputPath())), 64);
+
+        Random random = new Random(45);
+        for (int trial = 0; trial < 60; trial++) {
+            // Fabrics crowded into a corner of the 1000x1000 grid or spread over all of it, some of them empty, so
+            // that some trials have no intact fabric, some one, and some several.
+            int span = random.nextBoolean() ? 50 + random.nextInt(100) : 1000;
+            int count = 1 + random.nextInt(40);
+            List<Day3_No_Matter_How_You_Slice_It.Fabric> fabrics = new ArrayList<>();
+            for (int id = 1; id <= count; id++) {
+                int left = random.nextInt(span);
+                int top = random.nextInt(span);
+                int width = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(Math.min(60, span - left));
+                int height = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(Math.min(60, span - top));
+                fabrics.add(new Day3_No_Matter_How_You_Slice_It.Fabric(id, left, top, width, height));
+            }
+            Collections.shuffle(fabrics, random);
+
+            // Stripes of one row, of a few rows, and taller than the whole fabric.
+            for (int stripeHeight : new int[] { 1, 1 + random.nextInt(100), 2000 }) {
+                assertStripedMatches(fabrics, stripeHeight);
+            }
+        }
+    }
+
+    private static void assertStripedMatches(List<Day3_No_Matter_How_You_Slice_It.Fabric> fabrics, int stripeHeight) {
+        Day3_No_Matter_How_You_Slice_It.StripedPaintResult result =
+                Day3_No_Matter_How_You_Slice_It.paintInStripes(fabrics, stripeHeight, true);
+        assertEquals(Day3_No_Matter_How_You_Slice_It.part1(fabrics), result.overlapArea, fabrics.toString());
+        assertEquals(0, Day3_No_Matter_How_You_Slice_It.paintInStripes(fabrics, stripeHeight, false).intactId);
+
+        // part2 returns whichever intact fabric it comes across first, and paintInStripes the one with the smallest
+        // id, so they only have to agree when there is at most one.
+        SortedSet<Integer> intact = intactIds(fabrics);
+        int part2 = Day3_No_Matter_How_You_Slice_It.part2(fabrics);
+        if (intact.size() <= 1) {
+            assertEquals(part2, result.intactId, fabrics.toString());
+        } else {
+            assertTrue(intact.contains(part2), fabrics.toString());
+            assertEquals(intact.first(), result.intactId, fabrics.toString());
+        }
+    }
+
+    // The ids of the non-empty fabrics that share no square inch with any other fabric, found by checking every pair.
+    private static SortedSet<Integer> intactIds(List<Day3_No_Matter_How_You_Slice_It.Fabric> fabrics) {
+        SortedSet<Integer> intact = new TreeSet<>();
+        for (Day3_No_Matter_How_You_Slice_It.Fabric fabric : fabrics) {
+            if (fabric.width <= 0 || fabric.height <= 0)
+                continue;
+
+            boolean overlaps = false;
+            for (Day3_No_Matter_How_You_Slice_It.Fabric other : fabrics) {
+                overlaps |= other != fabric && other.width > 0 && other.height > 0
+                        && other.left < fabric.left + fabric.width && fabric.left < other.left + other.width
+                        && other.top < fabric.top + fabric.height && fabric.top < other.top + other.height;
+            }
+            if (!overlaps)
+                intact.add(fabric.id);
+        }
+        return intact;
+    }
+}
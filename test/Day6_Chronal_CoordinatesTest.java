@@ -0,0 +1,142 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Day6_Chronal_CoordinatesTest {
+    @Test
+    void indexFindsTheSameClosestSiteAsALinearScan() {
+        Random random = new Random(46);
+        for (int trial = 0; trial < 200; trial++) {
+            // Small spans give many ties and repeated sites; some trials put all the sites on one line.
+            int span = 1 + random.nextInt(random.nextBoolean() ? 10 : 500);
+            boolean line = random.nextInt(10) == 0;
+            List<Point> sites = new ArrayList<>();
+            for (int i = 1 + random.nextInt(60); i > 0; i--) {
+                sites.add(new Point(random.nextInt(span), line ? 7 : random.nextInt(span)));
+            }
+            Day6_Chronal_Coordinates.SiteIndex index = new Day6_Chronal_Coordinates.SiteIndex(sites);
+
+            int queries = 300;
+            int[] xs = new int[queries];
+            int[] ys = new int[queries];
+            for (int q = 0; q < queries; q++) {
+                // Queries reach up to twice the span outside the sites' bounding box on every side.
+                xs[q] = random.nextInt(5 * span) - 2 * span;
+                ys[q] = random.nextInt(5 * span) - 2 * span;
+
+                Point closest = Day6_Chronal_Coordinates.findClosestPoint(sites, new Point(xs[q], ys[q]));
+                int expected = closest == null ? Day6_Chronal_Coordinates.SiteIndex.TIE : sites.indexOf(closest);
+                assertEquals(expected, index.nearest(xs[q], ys[q]), "(" + xs[q] + ", " + ys[q] + ") among " + sites);
+                assertEquals(closestDistance(sites, xs[q], ys[q]), index.nearestDistance(xs[q], ys[q]));
+            }
+
+            int[] batch = index.nearest(xs, ys);
+            for (int q = 0; q < queries; q++) {
+                assertEquals(index.nearest(xs[q], ys[q]), batch[q]);
+            }
+        }
+    }
+
+    @Test
+    void parallelPartsMatchTheSequentialOnes() throws IOException {
+        Day6_Chronal_Coordinates puzzle = new Day6_Chronal_Coordinates();
+        assertParallelMatches(puzzle.parse(new File(puzzle.inputPath())));
+
+        Random random = new Random(48);
+        for (int trial = 0; trial < 30; trial++) {
+            // Enough sites, spread over a wide enough box, that the safe region only covers part of it.
+            int width = 1 + random.nextInt(200);
+            int height = 1 + random.nextInt(200);
+            List<Point> sites = new ArrayList<>();
+            for (int i = 1 + random.nextInt(150); i > 0; i--) {
+                sites.add(new Point(random.nextInt(width), random.nextInt(height)));
+            }
+            assertParallelMatches(coordinates(sites));
+        }
+    }
+
+    @Test
+    void incrementalAreasMatchRecomputingFromScratch() {
+        Random random = new Random(47);
+        for (int trial = 0; trial < 20; trial++) {
+            // Enough sites in a small enough box that the safe region covers part of it, with sites often repeated.
+            int span = 1 + random.nextInt(120);
+            Day6_Chronal_Coordinates.IncrementalAreas areas = new Day6_Chronal_Coordinates.IncrementalAreas(10000);
+            List<Integer> ids = new ArrayList<>();
+            for (int change = 0; change < 400; change++) {
+                // Grow to about 80 sites, then remove every site, then grow again.
+                boolean remove = !ids.isEmpty() && (change >= 250 && change < 400 - 20 || random.nextInt(3) == 0);
+                if (remove) {
+                    areas.removeSite(ids.remove(random.nextInt(ids.size())));
+                } else {
+                    ids.add(areas.addSite(random.nextInt(span), random.nextInt(span)));
+                }
+
+                if (ids.isEmpty()) {
+                    assertEquals(0, areas.largestFiniteArea());
+                    assertEquals(0, areas.safeRegionSize());
+                    continue;
+                }
+                Day6_Chronal_Coordinates.Coordinates c = areas.coordinates();
+                assertEquals(Day6_Chronal_Coordinates.part1WithIndex(c.points, c.xBounds, c.yBounds),
+                        areas.largestFiniteArea(), "after change " + change + " to " + c.points);
+                assertEquals(Day6_Chronal_Coordinates.part2(c.points, c.xBounds, c.yBounds),
+                        areas.safeRegionSize(), "after change " + change + " to " + c.points);
+
+                // The index the areas keep must still find the closest live site by its id.
+                int x = random.nextInt(span + 20) - 10;
+                int y = random.nextInt(span + 20) - 10;
+                Point closest = Day6_Chronal_Coordinates.findClosestPoint(c.points, new Point(x, y));
+                int expected = closest == null ? Day6_Chronal_Coordinates.SiteIndex.TIE : idOf(areas, ids, closest);
+                assertEquals(expected, areas.index.nearest(x, y));
+            }
+        }
+    }
+
+    private static void assertParallelMatches(Day6_Chronal_Coordinates.Coordinates c) {
+        assertEquals(Day6_Chronal_Coordinates.part1(c.points, c.xBounds, c.yBounds),
+                Day6_Chronal_Coordinates.part1Parallel(c.points, c.xBounds, c.yBounds));
+        assertEquals(Day6_Chronal_Coordinates.part2(c.points, c.xBounds, c.yBounds),
+                Day6_Chronal_Coordinates.part2Parallel(c.points, c.xBounds, c.yBounds));
+    }
+
+    // The sites with their bounding box, as parse returns them.
+    private static Day6_Chronal_Coordinates.Coordinates coordinates(List<Point> sites) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Point site : sites) {
+            minX = Math.min(minX, site.x);
+            maxX = Math.max(maxX, site.x);
+            minY = Math.min(minY, site.y);
+            maxY = Math.max(maxY, site.y);
+        }
+        return new Day6_Chronal_Coordinates.Coordinates(sites, new Day6_Chronal_Coordinates.Pair(minX, maxX),
+                new Day6_Chronal_Coordinates.Pair(minY, maxY));
+    }
+
+    // The id of the live site that is the given point.
+    private static int idOf(Day6_Chronal_Coordinates.IncrementalAreas areas, List<Integer> ids, Point site) {
+        for (int id : ids) {
+            if (areas.site(id) == site)
+                return id;
+        }
+        throw new IllegalArgumentException("No site at " + site);
+    }
+
+    private static int closestDistance(List<Point> sites, int x, int y) {
+        int best = Integer.MAX_VALUE;
+        for (Point site : sites) {
+            best = Math.min(best, Math.abs(site.x - x) + Math.abs(site.y - y));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,228 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Day7_Sum_of_its_PartsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void oneWorkerCompletesTheStepsInPart1Order() throws Exception {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 50; trial++) {
+            Day7_Sum_of_its_Parts.StepGraph graph = randomGraph(random, 2 + random.nextInt(25));
+            Map<String, Runnable> actions = new HashMap<>();
+            for (String step : graph.adjacencyList.keySet()) {
+                actions.put(step, () -> { });
+            }
+
+            Day7_Sum_of_its_Parts.ExecutionReport report = new Day7_Sum_of_its_Parts.StepExecutor(graph, actions, 1).run();
+            assertEquals(new Day7_Sum_of_its_Parts().solvePart1(graph), report.completionOrder);
+        }
+    }
+
+    @Test
+    void manyWorkersRunEveryStepOnceAfterItsDependencies() throws Exception {
+        Random random = new Random(49);
+        for (int trial = 0; trial < 20; trial++) {
+            Day7_Sum_of_its_Parts.StepGraph graph = randomGraph(random, 2 + random.nextInt(25));
+            Map<String, Runnable> actions = new HashMap<>();
+            for (String step : graph.adjacencyList.keySet()) {
+                actions.put(step, () -> { });
+            }
+
+            Day7_Sum_of_its_Parts.ExecutionReport report = new Day7_Sum_of_its_Parts.StepExecutor(graph, actions, 4).run();
+            String order = report.completionOrder;
+            assertEquals(graph.adjacencyList.keySet(), lettersOf(order));
+            assertEquals(graph.adjacencyList.size(), order.length());
+            for (String step : graph.adjacencyList.keySet()) {
+                for (String child : graph.adjacencyList.get(step)) {
+                    assertTrue(order.indexOf(step) < order.indexOf(child), step + " before " + child + " in " + order);
+                }
+            }
+        }
+    }
+
+    @Test
+    void aFailingStepStopsTheRun() throws Exception {
+        // A comes first, then B and C are both ready; B fails, so neither C nor D may start.
+        Day7_Sum_of_its_Parts.StepGraph graph = graph("AB", "AC", "BD");
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Runnable> actions = new HashMap<>();
+        for (String step : graph.adjacencyList.keySet()) {
+            actions.put(step, () -> {
+                started.add(step);
+                if (step.equals("B"))
+                    throw new IllegalStateException("B failed");
+            });
+        }
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> new Day7_Sum_of_its_Parts.StepExecutor(graph, actions, 1).run());
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertEquals(List.of("A", "B"), started);
+    }
+
+    @Test
+    void addEdgeRejectsACycleAndLeavesTheOrderUnchanged() {
+        Day7_Sum_of_its_Parts.DynamicStepOrder order = new Day7_Sum_of_its_Parts.DynamicStepOrder();
+        order.addEdge("C", "A");
+        order.addEdge("A", "B");
+        order.addEdge("B", "D");
+        List<String> before = order.order();
+        assertEquals(List.of("C", "A", "B", "D"), before);
+
+        // D already depends on C through A and B, so C cannot depend on D.
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> order.addEdge("D", "C"));
+        assertTrue(exception.getMessage().contains("cycle"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("step C"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("step D"), exception.getMessage());
+
+        assertEquals(before, order.order());
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(i, order.position(before.get(i)));
+        }
+        assertEquals(Set.of(), order.children.get("D"));
+        assertEquals(Set.of(), order.parents.get("C"));
+
+        // The order still takes dependencies that do not close a cycle.
+        assertTrue(order.addEdge("C", "D"));
+        assertEquals(before, order.order());
+    }
+
+    @Test
+    void addEdgeAgainstTheOrderMovesTheAffectedSteps() {
+        Day7_Sum_of_its_Parts.DynamicStepOrder order = new Day7_Sum_of_its_Parts.DynamicStepOrder();
+        for (String step : List.of("A", "B", "C", "D")) {
+            order.addStep(step);
+        }
+
+        // A depending on D goes against the order, so D moves into A's position and A into D's.
+        assertTrue(order.addEdge("D", "A"));
+        assertEquals(List.of("D", "B", "C", "A"), order.order());
+        assertEquals(2, order.movedSteps);
+        assertOrderHolds(order);
+    }
+
+    @Test
+    void orderStaysTopologicalWhileEdgesGoAgainstIt() {
+        Random random = new Random(50);
+        long movedSteps = 0;
+        for (int trial = 0; trial < 100; trial++) {
+            // The steps start in a random order, and the dependencies follow a different random order, so that
+            // many of them point backwards and have to move steps. Some of the pairs would close a cycle.
+            int n = 2 + random.nextInt(25);
+            List<String> steps = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                steps.add(String.valueOf((char) ('A' + i)));
+            }
+            Collections.shuffle(steps, random);
+            Day7_Sum_of_its_Parts.DynamicStepOrder order = new Day7_Sum_of_its_Parts.DynamicStepOrder();
+            for (String step : steps) {
+                order.addStep(step);
+            }
+            Collections.shuffle(steps, random);
+
+            for (int edge = 0; edge < 3 * n; edge++) {
+                String step = steps.get(random.nextInt(n));
+                String child = steps.get(random.nextInt(n));
+                if (step.equals(child))
+                    continue;
+
+                if (random.nextInt(10) == 0) {
+                    order.removeEdge(step, child);
+                } else if (steps.indexOf(step) < steps.indexOf(child)) {
+                    order.addEdge(step, child);
+                } else if (reaches(order, child, step)) {
+                    List<String> before = order.order();
+                    assertThrows(IllegalArgumentException.class, () -> order.addEdge(step, child));
+                    assertEquals(before, order.order());
+                }
+                assertOrderHolds(order);
+            }
+            movedSteps += order.movedSteps;
+        }
+        assertTrue(movedSteps > 0);
+    }
+
+    // Checks that position gives every step's index in the order, and that every dependency goes forwards in it.
+    private static void assertOrderHolds(Day7_Sum_of_its_Parts.DynamicStepOrder order) {
+        List<String> steps = order.order();
+        assertEquals(order.positions.size(), steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            assertEquals(i, order.position(steps.get(i)));
+        }
+        for (String step : steps) {
+            for (String child : order.children.get(step)) {
+                assertTrue(order.position(step) < order.position(child), step + " before " + child + " in " + steps);
+            }
+        }
+    }
+
+    // Whether the target depends on the start, directly or through other steps.
+    private static boolean reaches(Day7_Sum_of_its_Parts.DynamicStepOrder order, String start, String target) {
+        Deque<String> stack = new ArrayDeque<>(List.of(start));
+        Set<String> visited = new HashSet<>(stack);
+        while (!stack.isEmpty()) {
+            for (String next : order.children.get(stack.pop())) {
+                if (next.equals(target))
+                    return true;
+                if (visited.add(next))
+                    stack.push(next);
+            }
+        }
+        return false;
+    }
+
+    // Returns a random acyclic graph of the first n letters. Each step after the first in a random order depends on
+    // an earlier one, so every letter is in the graph, and the dependencies are given in random order.
+    private Day7_Sum_of_its_Parts.StepGraph randomGraph(Random random, int n) throws IOException {
+        List<Character> steps = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            steps.add((char) ('A' + i));
+        }
+        Collections.shuffle(steps, random);
+
+        Set<String> dependencies = new LinkedHashSet<>();
+        for (int j = 1; j < n; j++) {
+            dependencies.add("" + steps.get(random.nextInt(j)) + steps.get(j));
+            for (int extra = random.nextInt(3); extra > 0; extra--) {
+                dependencies.add("" + steps.get(random.nextInt(j)) + steps.get(j));
+            }
+        }
+
+        List<String> shuffled = new ArrayList<>(dependencies);
+        Collections.shuffle(shuffled, random);
+        return graph(shuffled.toArray(new String[0]));
+    }
+
+    // Parses a graph from dependencies given as two letters: the step, then the step that depends on it.
+    private Day7_Sum_of_its_Parts.StepGraph graph(String... dependencies) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String dependency : dependencies) {
+            lines.add("Step " + dependency.charAt(0) + " must be finished before step " + dependency.charAt(1) + " can begin.");
+        }
+
+        File file = Files.createTempFile(tempDir, "day7", ".txt").toFile();
+        Files.write(file.toPath(), lines);
+        return new Day7_Sum_of_its_Parts().parse(file);
+    }
+
+    private static Set<String> lettersOf(String order) {
+        Set<String> letters = new HashSet<>();
+        for (char c : order.toCharArray()) {
+            letters.add(String.valueOf(c));
+        }
+        return letters;
+    }
+}
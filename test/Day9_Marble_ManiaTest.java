@@ -0,0 +1,134 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Day9_Marble_ManiaTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void checkpointIntervalMustBePositive() {
+        File checkpointFile = tempDir.resolve("zero.bin").toFile();
+        assertThrows(IllegalArgumentException.class, () -> Day9_Marble_Mania.part2WithCheckpoints(9, 25, checkpointFile, 0));
+        assertThrows(IllegalArgumentException.class, () -> Day9_Marble_Mania.part2WithCheckpoints(9, 25, checkpointFile, -5));
+        assertFalse(checkpointFile.exists());
+    }
+
+    @Test
+    void resumingFromASnapshotScoresLikeAnUninterruptedGame() throws Exception {
+        int numPlayers = 13;
+        int lastMarble = 200_000;
+        long expected = Day9_Marble_Mania.part2(numPlayers, lastMarble);
+        assertEquals(expected, Day9_Marble_Mania.part2WithCheckpoints(numPlayers, lastMarble,
+                tempDir.resolve("uninterrupted.bin").toFile(), 1_000));
+
+        // Stop right after the first marble, just before and after a marble that scores, and one marble before the
+        // end, then let part2WithCheckpoints pick the game up from the snapshot, taking snapshots of its own.
+        for (long stopAt : new long[] { 2, 23 * 1000, 23 * 1000 + 1, 123_457, lastMarble }) {
+            File checkpointFile = tempDir.resolve("stop-" + stopAt + ".bin").toFile();
+            playAndSnapshot(numPlayers, lastMarble, stopAt, checkpointFile);
+
+            Day9_Marble_Mania.MarbleGameState state =
+                    new Day9_Marble_Mania.MarbleGameCheckpointer(checkpointFile).load(numPlayers, lastMarble);
+            assertNotNull(state);
+            assertEquals(stopAt, state.nextMarble);
+
+            assertEquals(expected, Day9_Marble_Mania.part2WithCheckpoints(numPlayers, lastMarble, checkpointFile, 7_000),
+                    "resumed at marble " + stopAt);
+            assertFalse(checkpointFile.exists());
+        }
+    }
+
+    @Test
+    void ropeMatchesAnArrayList() {
+        Random random = new Random(27);
+        for (int trial = 0; trial < 10; trial++) {
+            // Sized for far fewer marbles than it gets, so that blocks split and, past 4 * 64^2 marbles, the rope
+            // rebuilds with larger blocks. Then it is emptied, which removes blocks, and filled again.
+            Day9_Marble_Mania.MarbleRope rope = new Day9_Marble_Mania.MarbleRope(random.nextInt(100));
+            List<Integer> list = new ArrayList<>();
+            int[] index = new int[1];
+            for (int operation = 0; operation < 50_000; operation++) {
+                applyRandomOperation(rope, list, random, index, 2);
+            }
+            assertTrue(list.size() > 4 * 64 * 64, "only " + list.size() + " marbles");
+            while (!list.isEmpty()) {
+                applyRandomOperation(rope, list, random, index, 10);
+            }
+            for (int operation = 0; operation < 5_000; operation++) {
+                applyRandomOperation(rope, list, random, index, 3);
+            }
+
+            for (int i = 0; i < list.size(); i++) {
+                assertEquals(list.get(i).intValue(), rope.get(i));
+            }
+            int size = list.size();
+            assertThrows(IndexOutOfBoundsException.class, () -> rope.get(size));
+            assertThrows(IndexOutOfBoundsException.class, () -> rope.get(-1));
+        }
+    }
+
+    // Removes the marble at a random index from both the rope and the list in the given number of tenths of the
+    // cases where there is one, and otherwise either compares the marbles there or adds a new one. The index is
+    // mostly a few places from the previous one, as in the game, and sometimes anywhere.
+    private static void applyRandomOperation(Day9_Marble_Mania.MarbleRope rope, List<Integer> list, Random random,
+                                             int[] index, int removeTenths) {
+        int next = random.nextInt(8) == 0 ? random.nextInt(list.size() + 1) : index[0] + random.nextInt(9) - 7;
+        index[0] = Math.floorMod(next, list.size() + 1);
+
+        int choice = random.nextInt(10);
+        if (index[0] < list.size() && choice < removeTenths) {
+            assertEquals(list.remove(index[0]).intValue(), rope.remove(index[0]));
+        } else if (index[0] < list.size() && choice < removeTenths + 2) {
+            assertEquals(list.get(index[0]).intValue(), rope.get(index[0]));
+        } else {
+            int marble = random.nextInt();
+            rope.add(index[0], marble);
+            list.add(index[0], marble);
+        }
+        assertEquals(list.size(), rope.size());
+    }
+
+    @Test
+    void ropeGameScoresLikeTheLinkedCircle() {
+        assertEquals(32, Day9_Marble_Mania.part2WithRope(9, 25));
+        assertEquals(8317, Day9_Marble_Mania.part2WithRope(10, 1618));
+        assertEquals(146373, Day9_Marble_Mania.part2WithRope(13, 7999));
+
+        Random random = new Random(9);
+        for (int trial = 0; trial < 30; trial++) {
+            int numPlayers = 1 + random.nextInt(500);
+            int lastMarble = 1 + random.nextInt(random.nextBoolean() ? 100 : 300_000);
+            assertEquals(Day9_Marble_Mania.part2(numPlayers, lastMarble), Day9_Marble_Mania.part2WithRope(numPlayers, lastMarble),
+                    numPlayers + " players, last marble " + lastMarble);
+        }
+    }
+
+    // Plays the marbles below stopAt on the array-backed circle, as part2WithCheckpoints does, then writes a
+    // snapshot of the game as if it had been interrupted there.
+    private static void playAndSnapshot(int numPlayers, long lastMarble, long stopAt, File checkpointFile)
+            throws Exception {
+        Day9_Marble_Mania.ArrayMarbleCircleGame game = new Day9_Marble_Mania.ArrayMarbleCircleGame(lastMarble);
+        long[] scores = new long[numPlayers];
+        int currentPlayer = 1 % numPlayers;
+        for (long marbleNumber = 1; marbleNumber < stopAt; marbleNumber++) {
+            scores[currentPlayer] += game.addNextMarble(marbleNumber);
+            currentPlayer = (currentPlayer + 1) % numPlayers;
+        }
+
+        Day9_Marble_Mania.MarbleGameCheckpointer checkpointer = new Day9_Marble_Mania.MarbleGameCheckpointer(checkpointFile);
+        checkpointer.snapshot(game, numPlayers, lastMarble, stopAt, currentPlayer, scores);
+        checkpointer.close();
+    }
+}